@@ -0,0 +1,474 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This abstract class is a basis for file tokenizers that read their whole
+ * input at once rather than through a <tt>java.io.Reader</tt>. The file is
+ * mapped in memory (see <tt>setFile(String)</tt>) and decoded in bulk into
+ * a <tt>char[]</tt> (<tt>text</tt>): ASCII files are simply widened, and
+ * other files are decoded as UTF-8. A subclass implements <tt>nextToken()</tt>
+ * by scanning <tt>text</tt> from <tt>position</tt> up to <tt>limit</tt>,
+ * either directly or with the scanning methods provided here, which involve
+ * no virtual call and no locking per character.
+ * <p>
+ * The offsets of the lines' starts are recorded while decoding, so that the
+ * line number of any offset is found by binary search (see <tt>lineAt(int)</tt>
+ * and <tt>columnAt(int)</tt>); <tt>lineNumber()</tt> is that of the current
+ * position. A reader may still be set (see <tt>setReader(Reader)</tt>), in
+ * which case its contents are read at once.
+ *
+ * @see         AbstractFileTokenizer
+ * @see         GenericParser
+ */
+
+public abstract class AbstractMappedFileTokenizer extends AbstractFileTokenizer
+{
+  /**
+   * The input's characters.
+   */
+  protected char[] text = new char[0];
+
+  /**
+   * The offset of the next character to scan.
+   */
+  protected int position;
+
+  /**
+   * The offset past the input's last character.
+   */
+  protected int limit;
+
+  /**
+   * The offsets of the lines' starts; <tt>lineStarts[i]</tt> is the offset
+   * of line <tt>i+1</tt>.
+   */
+  private int[] lineStarts = { 0 };
+  private int lineCount = 1;
+
+  private String fileName;
+
+  /**
+   * Returns the name of the file being tokenized.
+   */
+  public String fileName ()
+    {
+      return fileName;
+    }
+
+  /**
+   * Sets the name of the file being tokenized, without reading it (see
+   * <tt>setFile(String)</tt>).
+   */
+  public void setFileName (String name)
+    {
+      fileName = name;
+    }
+
+  /**
+   * Maps the file having the specified name in memory, decodes it, and sets
+   * it as the input to tokenize.
+   */
+  public void setFile (String name) throws IOException
+    {
+      FileInputStream stream = new FileInputStream(new File(name));
+
+      try
+        {
+          FileChannel channel = stream.getChannel();
+          long size = channel.size();
+
+          if (size > Integer.MAX_VALUE)
+            throw new IOException("File too large to map: "+name);
+
+          setText(decode(channel.map(FileChannel.MapMode.READ_ONLY,0,size)));
+        }
+      finally
+        {
+          stream.close();
+        }
+
+      fileName = name;
+    }
+
+  /**
+   * Reads all the characters of the specified reader at once, closes it,
+   * and sets them as the input to tokenize.
+   */
+  public void setReader (Reader reader)
+    {
+      char[] chars = new char[8192];
+      int length = 0;
+
+      try
+        {
+          for (int n; (n = reader.read(chars,length,chars.length-length)) != -1;)
+            if ((length += n) == chars.length)
+              {
+                char[] newChars = new char[2*chars.length];
+                System.arraycopy(chars,0,newChars,0,length);
+                chars = newChars;
+              }
+          reader.close();
+        }
+      catch (IOException e)
+        {
+          throw new UncheckedIOException(e);
+        }
+
+      setText(CharBuffer.wrap(chars,0,length));
+    }
+
+  /**
+   * Returns <tt>null</tt>, since the input is read at once.
+   */
+  public Reader getReader ()
+    {
+      return null;
+    }
+
+  /**
+   * Returns the line number of the current position.
+   */
+  public int lineNumber ()
+    {
+      return lineAt(position);
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       DECODING        METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Returns the characters encoded in the specified buffer: the bytes are
+   * simply widened if they are all ASCII, and decoded as UTF-8 (skipping a
+   * byte order mark) otherwise.
+   */
+  private static final CharBuffer decode (ByteBuffer bytes) throws IOException
+    {
+      int length = bytes.remaining();
+      char[] chars = new char[length];
+      byte[] chunk = new byte[Math.min(length,8192)];
+      int count = 0;
+
+      while (bytes.hasRemaining())
+        {
+          int n = Math.min(chunk.length,bytes.remaining());
+          bytes.get(chunk,0,n);
+
+          for (int i=0; i<n; i++)
+            {
+              byte b = chunk[i];
+              if (b < 0)
+                {
+                  bytes.rewind();
+                  return decodeUTF8(bytes);
+                }
+              chars[count++] = (char)b;
+            }
+        }
+
+      return CharBuffer.wrap(chars);
+    }
+
+  private static final CharBuffer decodeUTF8 (ByteBuffer bytes) throws CharacterCodingException
+    {
+      if (bytes.remaining() >= 3
+          && bytes.get(0) == (byte)0xEF && bytes.get(1) == (byte)0xBB && bytes.get(2) == (byte)0xBF)
+        bytes.position(3);
+
+      CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                               .onMalformedInput(CodingErrorAction.REPLACE)
+                               .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      return decoder.decode(bytes);
+    }
+
+  /**
+   * Sets the specified characters as the input to tokenize, and records the
+   * offsets of their lines.
+   */
+  private final void setText (CharBuffer chars)
+    {
+      if (chars.hasArray() && chars.arrayOffset() == 0 && chars.position() == 0)
+        {
+          text = chars.array();
+          limit = chars.limit();
+        }
+      else
+        {
+          text = new char[chars.remaining()];
+          chars.get(text);
+          limit = text.length;
+        }
+
+      position = 0;
+
+      lineStarts = new int[Math.max(16,limit/32)];
+      lineCount = 1;
+
+      for (int i=0; i<limit; i++)
+        if (text[i] == '\n')
+          {
+            if (lineCount == lineStarts.length)
+              {
+                int[] newStarts = new int[2*lineCount];
+                System.arraycopy(lineStarts,0,newStarts,0,lineCount);
+                lineStarts = newStarts;
+              }
+            lineStarts[lineCount++] = i+1;
+          }
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       LOCATING        METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Returns the number of the line (counting from 1) containing the specified
+   * offset.
+   */
+  public final int lineAt (int offset)
+    {
+      int low = 0;
+      int high = lineCount-1;
+
+      while (low < high)
+        {
+          int middle = (low+high+1) >>> 1;
+          if (lineStarts[middle] <= offset)
+            low = middle;
+          else
+            high = middle-1;
+        }
+
+      return low+1;
+    }
+
+  /**
+   * Returns the column (counting from 1) of the specified offset in its line.
+   */
+  public final int columnAt (int offset)
+    {
+      return offset - lineStarts[lineAt(offset)-1] + 1;
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       SCANNING        METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Returns <tt>true</tt> iff all the input has been scanned.
+   */
+  protected final boolean atEnd ()
+    {
+      return position >= limit;
+    }
+
+  /**
+   * Returns the character at the current position, or <tt>-1</tt> at the
+   * end of the input.
+   */
+  protected final int peek ()
+    {
+      return position < limit ? text[position] : -1;
+    }
+
+  /**
+   * Returns the character at the specified distance from the current position,
+   * or <tt>-1</tt> if this is past the end of the input.
+   */
+  protected final int peek (int distance)
+    {
+      int offset = position+distance;
+      return offset < limit ? text[offset] : -1;
+    }
+
+  /**
+   * Returns the character at the current position and moves past it, or
+   * returns <tt>-1</tt> at the end of the input.
+   */
+  protected final int read ()
+    {
+      return position < limit ? text[position++] : -1;
+    }
+
+  /**
+   * Moves past the whitespace at the current position, and returns the new
+   * position.
+   */
+  protected final int skipWhitespace ()
+    {
+      int i = position;
+      while (i < limit && (text[i] <= ' ' ? text[i] == ' ' || (text[i] >= '\t' && text[i] <= '\r')
+                                           : text[i] > 0x7F && Character.isWhitespace(text[i])))
+        i++;
+      return position = i;
+    }
+
+  /**
+   * Moves to the start of the next line (or to the end of the input), and
+   * returns the new position. This is meant for skipping end-of-line comments.
+   */
+  protected final int skipLine ()
+    {
+      int i = position;
+      while (i < limit && text[i] != '\n')
+        i++;
+      return position = i < limit ? i+1 : i;
+    }
+
+  /**
+   * Moves past the Java identifier starting at the current position, if
+   * any, and returns the new position.
+   */
+  protected final int scanIdentifier ()
+    {
+      int i = position;
+
+      if (i < limit && isIdentifierStart(text[i]))
+        for (i++; i < limit && isIdentifierPart(text[i]); i++);
+
+      return position = i;
+    }
+
+  private static final boolean isIdentifierStart (char c)
+    {
+      if (c < 0x80)
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+      return Character.isJavaIdentifierStart(c);
+    }
+
+  private static final boolean isIdentifierPart (char c)
+    {
+      if (c < 0x80)
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || c == '_' || c == '$';
+      return Character.isJavaIdentifierPart(c);
+    }
+
+  /**
+   * Moves past the decimal digits at the current position, and returns the
+   * new position.
+   */
+  protected final int scanDigits ()
+    {
+      int i = position;
+      while (i < limit && text[i] >= '0' && text[i] <= '9')
+        i++;
+      return position = i;
+    }
+
+  /**
+   * Moves past the unsigned decimal number starting at the current position,
+   * if any, and returns the new position. A number is a non-empty sequence of
+   * digits, optionally followed by a fraction (a dot followed by at least one
+   * digit) and an exponent (<tt>e</tt> or <tt>E</tt>, an optional sign, and
+   * at least one digit).
+   */
+  protected final int scanNumber ()
+    {
+      int start = position;
+
+      if (scanDigits() == start)
+        return position;
+
+      if (peek() == '.' && isDigit(peek(1)))
+        {
+          position++;
+          scanDigits();
+        }
+
+      int c = peek();
+      if (c == 'e' || c == 'E')
+        {
+          int mark = position;
+          int sign = peek(1);
+          position += (sign == '+' || sign == '-') ? 2 : 1;
+          if (!isDigit(peek()))
+            position = mark;
+          else
+            scanDigits();
+        }
+
+      return position;
+    }
+
+  private static final boolean isDigit (int c)
+    {
+      return c >= '0' && c <= '9';
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the characters between the specified offsets
+   * are all decimal digits (as opposed to, <i>e.g.</i>, a number with a
+   * fraction or an exponent).
+   */
+  protected final boolean isInteger (int start, int end)
+    {
+      for (int i=start; i<end; i++)
+        if (!isDigit(text[i]))
+          return false;
+      return start < end;
+    }
+
+  /**
+   * Returns the value of the decimal digits between the specified offsets,
+   * without creating a string. The value must fit in an <tt>int</tt>.
+   */
+  protected final int intValue (int start, int end)
+    {
+      int value = 0;
+      for (int i=start; i<end; i++)
+        value = 10*value + (text[i]-'0');
+      return value;
+    }
+
+  /**
+   * Returns the value of the number between the specified offsets.
+   */
+  protected final double doubleValue (int start, int end)
+    {
+      return Double.parseDouble(new String(text,start,end-start));
+    }
+
+  /**
+   * Returns a slice of the input made of the characters between the specified
+   * offsets, without copying them. This may be given to the int-coded token
+   * factory methods (see <tt>GenericParser.symbolToken(int,CharSequence)</tt>
+   * and <tt>GenericParser.sliceToken(int,CharSequence)</tt>).
+   */
+  protected final TokenSlice slice (int start, int end)
+    {
+      return new TokenSlice(text,start,end-start);
+    }
+
+  /**
+   * Returns a string made of the characters between the specified offsets.
+   */
+  protected final String substring (int start, int end)
+    {
+      return new String(text,start,end-start);
+    }
+}
@@ -0,0 +1,341 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+
+/**
+ * This is the class of the <a href="ParseTable.html"><tt>ParseTable</tt></a>s
+ * kept in heap arrays, in which form the parser generator builds the
+ * <i>action</i> and <i>goto</i> tables of the parsing automaton. Such a
+ * table maps a pair of integers <tt>(row,column)</tt> (<i>i.e.</i>, a
+ * state's index and a symbol's index) to an integer (<i>i.e.</i>, an
+ * action's or a state's index). It is kept compressed using the classical
+ * <i>row displacement</i> (or <i>comb-vector</i>) scheme: all the rows are
+ * overlaid into a single <tt>value</tt> array, each row starting at its own
+ * offset <tt>base[row]</tt>; a parallel <tt>check</tt> array records which
+ * row owns each slot. Thus, a lookup costs two array accesses and one
+ * comparison, and neither boxes nor hashes anything.
+ * <p>
+ * Rows with identical contents (as detected by <tt>ParserGenerator</tt>'s
+ * <tt>compressTables()</tt>) share the same <tt>base</tt>, which is why
+ * <tt>check</tt> records a row's base rather than its index. Each distinct
+ * row has a distinct base.
+ * <p>
+ * The tables are built by <a href="ParserGenerator.html"><tt>ParserGenerator</tt></a>,
+ * which emits them in the generated parser as string literals (see
+ * <tt>encode(CompressedTable)</tt>) that are decoded upon loading the parser's
+ * class (see <tt>decode(String[])</tt>), or writes them in a binary resource
+ * (see <tt>write(DataOutputStream)</tt> and <tt>read(IntBuffer)</tt>). A
+ * table read from a memory-mapped resource is a <a href="MappedCompressedTable.html">
+ * <tt>MappedCompressedTable</tt></a> instead.
+ *
+ * @see         ParseTable
+ * @see         GenericParser
+ * @see         ParserGenerator
+ */
+
+public class CompressedTable implements ParseTable
+{
+  /**
+   * The offset of each row in the <tt>value</tt> array.
+   */
+  private final int[] base;
+
+  /**
+   * The base of the row owning each slot of the <tt>value</tt> array,
+   * or <tt>-1</tt> if the slot is free.
+   */
+  private final int[] check;
+
+  /**
+   * The overlaid rows' values.
+   */
+  private final int[] value;
+
+  /**
+   * Constructs a table with the specified arrays. The <tt>check</tt> and
+   * <tt>value</tt> arrays must have the same length, and this length must
+   * allow any row's base plus any column's index.
+   */
+  public CompressedTable (int[] base, int[] check, int[] value)
+    {
+      this.base = base;
+      this.check = check;
+      this.value = value;
+    }
+
+  /**
+   * Returns the number of rows of this table.
+   */
+  public final int rowCount ()
+    {
+      return base.length;
+    }
+
+  /**
+   * Returns the size of the overlaid value array of this table.
+   */
+  public final int size ()
+    {
+      return value.length;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff this table has an entry at the specified
+   * row and column.
+   */
+  public final boolean contains (int row, int column)
+    {
+      int b = base[row];
+      return check[b+column] == b;
+    }
+
+  /**
+   * Returns the entry at the specified row and column, or <tt>absent</tt>
+   * if there is none.
+   */
+  public final int get (int row, int column, int absent)
+    {
+      int b = base[row];
+      int slot = b+column;
+      return check[slot] == b ? value[slot] : absent;
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       PACKING         METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Builds a compressed table from the specified sparse rows. Each row is
+   * given as an array of alternating columns and values (<i>i.e.</i>,
+   * <tt>{c<sub>1</sub>,v<sub>1</sub>,...,c<sub>n</sub>,v<sub>n</sub>}</tt>),
+   * and <tt>rowMap[i]</tt> is the index in <tt>rows</tt> of the contents of
+   * row <tt>i</tt> of the resulting table. All columns must be less than
+   * <tt>width</tt>. The rows are placed by decreasing density at the first
+   * offset where they fit (the usual <i>first-fit</i> heuristic).
+   */
+  public static CompressedTable pack (int[][] rows, int[] rowMap, int width)
+    {
+      int rowCount = rows.length;
+
+      // sort the rows by decreasing number of entries:
+      Integer[] order = new Integer[rowCount];
+      for (int i=0; i<rowCount; i++)
+        order[i] = Integer.valueOf(i);
+      final int[][] r = rows;
+      Arrays.sort(order, new Comparator()
+        {
+          public int compare (Object o1, Object o2)
+            {
+              return r[((Integer)o2).intValue()].length - r[((Integer)o1).intValue()].length;
+            }
+        });
+
+      int[] rowBase = new int[rowCount];
+      int capacity = Math.max(width,16);
+      int[] check = newCheckArray(capacity);
+      int[] value = new int[capacity];
+      boolean[] usedBase = new boolean[capacity];
+      int maxBase = 0;
+
+      for (int k=0; k<rowCount; k++)
+        {
+          int i = order[k].intValue();
+          int[] row = rows[i];
+          int b = 0;
+
+          for (;; b++)
+            {
+              if (b >= usedBase.length)
+                usedBase = grow(usedBase,2*b);
+              if (usedBase[b])
+                continue;
+
+              boolean fits = true;
+              for (int j=0; fits && j<row.length; j+=2)
+                {
+                  int slot = b+row[j];
+                  fits = slot >= check.length || check[slot] == -1;
+                }
+              if (fits)
+                break;
+            }
+
+          if (b+width > check.length)
+            {
+              int newCapacity = Math.max(2*check.length,b+width);
+              check = grow(check,newCapacity,-1);
+              value = grow(value,newCapacity,0);
+            }
+
+          for (int j=0; j<row.length; j+=2)
+            {
+              check[b+row[j]] = b;
+              value[b+row[j]] = row[j+1];
+            }
+
+          usedBase[b] = true;
+          rowBase[i] = b;
+          maxBase = Math.max(maxBase,b);
+        }
+
+      // trim to the smallest size allowing any column of any row:
+      int length = maxBase+width;
+      int[] base = new int[rowMap.length];
+      for (int i=0; i<rowMap.length; i++)
+        base[i] = rowBase[rowMap[i]];
+
+      return new CompressedTable(base,grow(check,length,-1),grow(value,length,0));
+    }
+
+  private static final int[] newCheckArray (int size)
+    {
+      int[] check = new int[size];
+      Arrays.fill(check,-1);
+      return check;
+    }
+
+  private static final int[] grow (int[] array, int size, int filler)
+    {
+      int[] newArray = new int[size];
+      int n = Math.min(size,array.length);
+      System.arraycopy(array,0,newArray,0,n);
+      if (n < size) Arrays.fill(newArray,n,size,filler);
+      return newArray;
+    }
+
+  private static final boolean[] grow (boolean[] array, int size)
+    {
+      boolean[] newArray = new boolean[size];
+      System.arraycopy(array,0,newArray,0,array.length);
+      return newArray;
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       ENCODING        METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Returns a string encoding the specified table. Each integer <tt>n</tt>
+   * (which must be greater than or equal to <tt>-1</tt>) is encoded as
+   * <tt>n+1</tt>, using one character if this is less than <tt>0x8000</tt>,
+   * or two characters otherwise. The three arrays are encoded in sequence,
+   * each one prefixed with its length.
+   */
+  public static String encode (CompressedTable table)
+    {
+      StringBuilder buf = new StringBuilder();
+      encode(table.base,buf);
+      encode(table.check,buf);
+      encode(table.value,buf);
+      return buf.toString();
+    }
+
+  private static final void encode (int[] array, StringBuilder buf)
+    {
+      encode(array.length,buf);
+      for (int i=0; i<array.length; i++)
+        encode(array[i],buf);
+    }
+
+  private static final void encode (int n, StringBuilder buf)
+    {
+      n++;
+      if (n < 0x8000)
+        buf.append((char)n);
+      else
+        buf.append((char)(0x8000|(n>>>15))).append((char)(n&0x7FFF));
+    }
+
+  /**
+   * Returns the table encoded by the concatenation of the specified strings
+   * (see <tt>encode(CompressedTable)</tt>). The encoding is given as several
+   * strings because of the size limit of string constants in class files.
+   */
+  public static CompressedTable decode (String[] chunks)
+    {
+      int length = 0;
+      for (int i=0; i<chunks.length; i++)
+        length += chunks[i].length();
+
+      char[] code = new char[length];
+      length = 0;
+      for (int i=0; i<chunks.length; i++)
+        {
+          chunks[i].getChars(0,chunks[i].length(),code,length);
+          length += chunks[i].length();
+        }
+
+      int[] position = new int[1];
+      int[] base = decode(code,position);
+      int[] check = decode(code,position);
+      int[] value = decode(code,position);
+      return new CompressedTable(base,check,value);
+    }
+
+  private static final int[] decode (char[] code, int[] position)
+    {
+      int[] array = new int[decodeInt(code,position)];
+      for (int i=0; i<array.length; i++)
+        array[i] = decodeInt(code,position);
+      return array;
+    }
+
+  private static final int decodeInt (char[] code, int[] position)
+    {
+      int n = code[position[0]++];
+      if (n >= 0x8000)
+        n = ((n&0x7FFF)<<15) | code[position[0]++];
+      return n-1;
+    }
+
+  /**
+   * Writes this table's three arrays on the specified stream as sequences of
+   * integers, each one prefixed with its length.
+   */
+  public final void write (DataOutputStream out) throws IOException
+    {
+      write(base,out);
+      write(check,out);
+      write(value,out);
+    }
+
+  private static final void write (int[] array, DataOutputStream out) throws IOException
+    {
+      out.writeInt(array.length);
+      for (int i=0; i<array.length; i++)
+        out.writeInt(array[i]);
+    }
+
+  /**
+   * Returns the table written by <tt>write(DataOutputStream)</tt> as read
+   * from the current position of <tt>data</tt>, which is advanced past the
+   * table.
+   */
+  public static CompressedTable read (IntBuffer data)
+    {
+      int[] base = readArray(data);
+      int[] check = readArray(data);
+      int[] value = readArray(data);
+      return new CompressedTable(base,check,value);
+    }
+
+  private static final int[] readArray (IntBuffer data)
+    {
+      int[] array = new int[data.get()];
+      data.get(array);
+      return array;
+    }
+}
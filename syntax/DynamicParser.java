@@ -30,6 +30,14 @@ import hlt.language.util.TimeStampManager;
  */
 public abstract class DynamicParser extends GenericParser
 {
+  /**
+   * Constructs a parser using the specified tables.
+   */
+  public DynamicParser (ParserTables tables)
+    {
+      super(tables);
+    }
+
   /**
    * Returns the precedence of the current handle (corrresponding
    * to the given rule).
@@ -161,22 +169,6 @@ public abstract class DynamicParser extends GenericParser
       ops.add(operator);
     }
 
-  protected static final void newDynamicActionTable (int state, int size)
-    {
-      states[state].dynamicActions = new ParserAction[size][];
-    }
-
-  protected static final void newDynamicActions (int state, int index, int size)
-    {
-      states[state].dynamicActions[index] = new ParserAction[size];
-    }
-
-  protected static final void setDynamicAction
-    (int state, int index, int position, int action)
-    {
-      states[state].dynamicActions[index][position] = actions[action];
-    }
-
   /**
    * The following are methods used for parsing.
    */
@@ -235,7 +227,7 @@ public abstract class DynamicParser extends GenericParser
       return new DynamicToken(super.error());
     }
 
-  protected static boolean admitsOperators = true;
+  protected boolean admitsOperators = true;
 
   /**
    * Overrides the implementation in <tt>GenericParser</tt> so that it
@@ -244,12 +236,9 @@ public abstract class DynamicParser extends GenericParser
    * is returned as a literal token anyway that will be resolved as a
    * potential dynamic operator by the <tt>readToken</tt> method.
    */
-  public static final ParseNode literalToken (String symbol)
+  public ParseNode literalToken (String symbol)
     {
-      ParserTerminal term = terminal(symbol);
-      return term == null ? (admitsOperators ? new ParseNode(symbol.intern())
-					     : error(symbol))
-			  : new ParseNode(term);
+      return tables.literalToken(symbol,admitsOperators);
     }
 
   /**
@@ -358,7 +347,7 @@ public abstract class DynamicParser extends GenericParser
 	      ops = null;
           }
         else
-	  tokenNode = error(tokenNode);
+	  tokenNode = tables.error(tokenNode);
 
       if (ops != null)
 	choice.addOptions(ops);
@@ -408,7 +397,7 @@ public abstract class DynamicParser extends GenericParser
   final void push (ParseNode node)
     {
       super.push(node);
-      stamp((TimeStamped)parserStack.peek());
+      stamp(parserStack);
     }
 
   /**
@@ -426,9 +415,13 @@ public abstract class DynamicParser extends GenericParser
     {
       if (getParseActionFlag)
 	{
-	  parseAction = parseState.getAction((ParserTerminal)tokenNode().symbol());
-	  if (parseAction == null || nonassociativeUnaryOperator())
-	    parseAction = errorAction();
+	  parseAction = parseState.defaultAction;
+	  if (parseAction == null)
+	    {
+	      parseAction = lookupAction(parseState,tokenNode().symbol());
+	      if (nonassociativeUnaryOperator())
+		parseAction = errorAction();
+	    }
 	}
 
       getParseActionFlag = true;
@@ -461,7 +454,7 @@ public abstract class DynamicParser extends GenericParser
         
       for (int i=parserStack.size()-1; i>=0; i--)
         {
-          node = ((ParserStackElement)parserStack.get(i)).getNode();
+          node = parserStack.node(i);
           if (node.isTerminal())
 	    return node.isOperator() && node.operator().equals(tokenNode().operator());
         }
@@ -489,13 +482,17 @@ public abstract class DynamicParser extends GenericParser
    * is the length of the current rule's RHS. This may also build a parse
    * tree as specified by <tt>parseTreeType</tt>.
    */
-  final void popHandle ()
+  final void popHandle () throws IOException
     {
+      // the handle must be saved on the trail before it is popped:
+      ParserStackElement[] handle = choiceStack.isEmpty() ? null
+				  : parserStack.handle(parseRule.length);
+
       super.popHandle();
 
-      if (!choiceStack.isEmpty())
+      if (handle != null)
 	{
-	  TrailEntry entry = new TrailEntry(parseHandle,parseRule);
+	  TrailEntry entry = new TrailEntry(handle,parseRule);
 	  stamp(entry);
 
           if ((entry = (TrailEntry)trailStack.push(entry)) != null)
@@ -570,18 +567,18 @@ public abstract class DynamicParser extends GenericParser
 	    }
 	}
 
-      ParserStackElement element = (ParserStackElement)parserStack.peek();
-      
-      while (element.getTimeStamp() > stamp)
+      while (parserStack.getTimeStamp() > stamp)
         {
+	  ParseNode node = parserStack.topNode();
+
 	  if (trace)
-	    err.println("Popping parser stack element: "+element);
+	    err.println("Popping parser stack element: "+parserStack.get(parserStack.size()-1));
 
 	  parserStack.pop();
 
-          if (element.getNode().isTerminal())
+          if (node.isTerminal())
 	    {
-              token = (DynamicToken)element.getNode();
+              token = (DynamicToken)node;
 	      if (!choice.isTokenChoice() || token.getTimeStamp() > stamp)
 		{
 		  readStack.push(token.getOriginal());
@@ -597,15 +594,37 @@ public abstract class DynamicParser extends GenericParser
               TrailEntry trail = (TrailEntry)trailStack.pop();
 
               for (int i=0; i<trail.handle.length; i++)
-                parserStack.push(trail.handle[i]);
+                {
+                  parserStack.push(trail.handle[i].getState(),
+                                   trail.handle[i].getNode(),
+                                   trail.handle[i].getTimeStamp());
+                  if (trail.handle[i].getFlatIndex() >= 0)
+                    parserStack.setFlatIndex(trail.handle[i].getFlatIndex());
+                }
 
-	      undoSemanticAction(trail.rule,element.getNode());
+	      undoSemanticAction(trail.rule,node);
             }
-
-          element = (ParserStackElement)parserStack.peek();
         }
     }
 
+  /**
+   * Returns <tt>true</tt> iff there are choice points to backtrack to.
+   */
+  final boolean hasChoicePoints ()
+    {
+      return !choiceStack.isEmpty();
+    }
+
+  /**
+   * Returns <tt>false</tt>: a dynamic parser may not parse in <tt>EVENT_TREE</tt>
+   * mode since the events reported for reductions that are later undone upon
+   * backtracking could not be retracted.
+   */
+  final boolean admitsEvents ()
+    {
+      return false;
+    }
+
   /**
    * Erases all backtracking information.
    */
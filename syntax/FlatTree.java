@@ -0,0 +1,562 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.util.Arrays;
+
+/**
+ * This is the class of parse trees built by a <a href="GenericParser.html">
+ * <tt>GenericParser</tt></a> in <tt>FLAT_TREE</tt> mode. Rather than as a
+ * <tt>ParseNode</tt> object per node, such a tree is recorded as a set of
+ * growable arrays of <tt>int</tt>s indexed by node, where a node is simply
+ * an <tt>int</tt>: the nodes are numbered in the order in which they are
+ * created, which is a postorder (<i>i.e.</i>, the children of a node are
+ * numbered before it). For each node, the following are recorded:
+ * <ul>
+ * <p><li>its <b>symbol</b> (a terminal or nonterminal index);
+ * <p><li>its <b>first child</b> and <b>child count</b>: the children of a
+ *        node are the nodes recorded from its first child's index on
+ *        in a separate array, in which each reduction appends those of
+ *        the handle;
+ * <p><li>its <b>start and end offsets</b>: those, in the sequence of tokens
+ *        read, of its first token and past its last token;
+ * <p><li>its <b>value</b> slot: for a leaf, the offset of its token, which
+ *        carries its value (see <tt>token(int)</tt>); and <tt>-1</tt>
+ *        for an inner node.
+ * </ul>
+ * Only the tokens created by the tokenizer are kept as objects. A tree is
+ * navigated either with the methods taking a node, or with a <a href=
+ * "FlatTree.Cursor.html"><tt>Cursor</tt></a> (see <tt>cursor()</tt>). A
+ * subtree may be converted on demand to a full concrete <tt>ParseNode</tt>
+ * tree (see <tt>toParseNode(int)</tt>).
+ * <p>
+ * <b>NB:</b> since a flat tree is only appended to, backtracking with a
+ * <a href="DynamicParser.html"><tt>DynamicParser</tt></a> leaves the nodes
+ * of the abandoned choices in the tree, unreachable from its root, and the
+ * tokens read again after backtracking are recorded again; the offsets of
+ * a node spanning such tokens then include those of the abandoned ones.
+ *
+ * @see         GenericParser
+ */
+
+public final class FlatTree
+{
+  private final ParserTerminal[] terminals;
+  private final ParserNonTerminal[] nonterminals;
+
+  /**
+   * The nodes' attributes; a nonterminal symbol is recorded as the
+   * complement of its index.
+   */
+  private int[] symbols;
+  private int[] firstChildren;
+  private int[] childCounts;
+  private int[] starts;
+  private int[] ends;
+  private int[] values;
+  private int size;
+
+  /**
+   * The children of all the nodes.
+   */
+  private int[] children;
+  private int childrenSize;
+
+  /**
+   * The tokens read.
+   */
+  private ParseNode[] tokens;
+  private int tokenCount;
+
+  /**
+   * Constructs an empty flat tree for the specified symbols.
+   */
+  FlatTree (ParserTerminal[] terminals, ParserNonTerminal[] nonterminals)
+    {
+      this.terminals = terminals;
+      this.nonterminals = nonterminals;
+
+      int capacity = 1024;
+      symbols = new int[capacity];
+      firstChildren = new int[capacity];
+      childCounts = new int[capacity];
+      starts = new int[capacity];
+      ends = new int[capacity];
+      values = new int[capacity];
+      children = new int[capacity];
+      tokens = new ParseNode[capacity];
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       BUILDING        METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Records a leaf for the specified token, and returns it.
+   */
+  final int addLeaf (ParseNode token)
+    {
+      if (tokenCount == tokens.length)
+        tokens = Arrays.copyOf(tokens,2*tokenCount);
+
+      int offset = tokenCount++;
+      tokens[offset] = token;
+
+      int node = newNode(symbolCode(token.symbol()));
+      firstChildren[node] = childrenSize;
+      starts[node] = offset;
+      ends[node] = offset+1;
+      values[node] = offset;
+      return node;
+    }
+
+  /**
+   * Records an inner node for the specified nonterminal whose children are
+   * the nodes of the <tt>length</tt> elements of the specified parser stack
+   * starting at index <tt>base</tt>, and returns it. The stack elements that
+   * have no node (<i>e.g.</i>, the <tt>error</tt> symbol) are skipped.
+   */
+  final int addNode (ParserNonTerminal head, ParserStack stack, int base, int length)
+    {
+      if (childrenSize + length > children.length)
+        children = Arrays.copyOf(children,Math.max(2*children.length,childrenSize+length));
+
+      int first = childrenSize;
+      int start = tokenCount;
+      int end = tokenCount;
+
+      for (int i=base; i<base+length; i++)
+        {
+          int child = stack.flatIndex(i);
+          if (child < 0)
+            continue;
+
+          if (childrenSize == first)
+            start = starts[child];
+          end = ends[child];
+          children[childrenSize++] = child;
+        }
+
+      int node = newNode(~head.index());
+      firstChildren[node] = first;
+      childCounts[node] = childrenSize - first;
+      starts[node] = start;
+      ends[node] = end;
+      values[node] = -1;
+      return node;
+    }
+
+  private final int newNode (int symbol)
+    {
+      if (size == symbols.length)
+        {
+          int capacity = 2*size;
+          symbols = Arrays.copyOf(symbols,capacity);
+          firstChildren = Arrays.copyOf(firstChildren,capacity);
+          childCounts = Arrays.copyOf(childCounts,capacity);
+          starts = Arrays.copyOf(starts,capacity);
+          ends = Arrays.copyOf(ends,capacity);
+          values = Arrays.copyOf(values,capacity);
+        }
+
+      symbols[size] = symbol;
+      childCounts[size] = 0;
+      return size++;
+    }
+
+  private static final int symbolCode (ParserSymbol symbol)
+    {
+      return symbol instanceof ParserNonTerminal ? ~symbol.index() : symbol.index();
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       ACCESSING       METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Returns the number of nodes of this tree.
+   */
+  public final int size ()
+    {
+      return size;
+    }
+
+  /**
+   * Returns the number of tokens read.
+   */
+  public final int tokenCount ()
+    {
+      return tokenCount;
+    }
+
+  /**
+   * Returns the root of this tree, or <tt>-1</tt> if it is empty. As for
+   * <tt>GenericParser.currentNode()</tt>, the root of a tree parsed with a
+   * switch token is the parsed node rather than the <tt>$ROOTS$</tt> node.
+   */
+  public final int root ()
+    {
+      int root = size-1;
+
+      if (root >= 0 && symbols[root] < 0
+          && symbol(root).name() == "$ROOTS$" && childCounts[root] > 0)
+        return lastChild(root);
+
+      return root;
+    }
+
+  /**
+   * Returns the symbol of the specified node.
+   */
+  public final ParserSymbol symbol (int node)
+    {
+      int symbol = symbols[node];
+      return symbol < 0 ? (ParserSymbol)nonterminals[~symbol] : (ParserSymbol)terminals[symbol];
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the specified node is a leaf (<i>i.e.</i>,
+   * iff it stands for a token).
+   */
+  public final boolean isLeaf (int node)
+    {
+      return values[node] >= 0;
+    }
+
+  /**
+   * Returns the number of children of the specified node.
+   */
+  public final int numberOfChildren (int node)
+    {
+      return childCounts[node];
+    }
+
+  /**
+   * Returns the <tt>i</tt>-th child of the specified node. <b>NB:</b> as
+   * for <tt>ParseNode.child(int)</tt>, the argument <tt>i</tt> ranges from
+   * <tt>1</tt> to <tt>numberOfChildren(node)</tt>.
+   */
+  public final int child (int node, int i)
+    {
+      if (i < 1 || i > childCounts[node])
+        throw new IndexOutOfBoundsException("Child: "+i+", Number of children: "+childCounts[node]);
+
+      return children[firstChildren[node]+i-1];
+    }
+
+  /**
+   * Returns the last child of the specified node, or <tt>-1</tt> if it has
+   * none.
+   */
+  public final int lastChild (int node)
+    {
+      return childCounts[node] == 0 ? -1 : children[firstChildren[node]+childCounts[node]-1];
+    }
+
+  /**
+   * Returns the offset of the first token of the specified node.
+   */
+  public final int start (int node)
+    {
+      return starts[node];
+    }
+
+  /**
+   * Returns the offset past the last token of the specified node (which
+   * is its start offset if the node is empty).
+   */
+  public final int end (int node)
+    {
+      return ends[node];
+    }
+
+  /**
+   * Returns the token of the specified node if it is a leaf, and <tt>null</tt>
+   * otherwise.
+   */
+  public final ParseNode token (int node)
+    {
+      int value = values[node];
+      return value < 0 ? null : tokens[value];
+    }
+
+  /**
+   * Returns the token read at the specified offset.
+   */
+  public final ParseNode tokenAt (int offset)
+    {
+      if (offset < 0 || offset >= tokenCount)
+        throw new IndexOutOfBoundsException("Offset: "+offset+", Token count: "+tokenCount);
+
+      return tokens[offset];
+    }
+
+  /**
+   * Returns a new cursor positioned on the root of this tree.
+   */
+  public final Cursor cursor ()
+    {
+      return new Cursor(root());
+    }
+
+  /**
+   * Returns a new cursor positioned on the specified node.
+   */
+  public final Cursor cursor (int node)
+    {
+      return new Cursor(node);
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       CONVERSION      METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Returns the full concrete <tt>ParseNode</tt> tree rooted in the specified
+   * node. Its leaves are the tokens themselves, and its inner nodes are new
+   * <tt>ParseNode</tt>s located at the span of their children. This is done
+   * without recursion, so that the depth of the tree does not matter.
+   */
+  public final ParseNode toParseNode (int node)
+    {
+      // a stack of nodes to convert, where a node whose children have been
+      // converted is complemented, and a stack of converted nodes:
+      int[] todo = new int[64];
+      int todoSize = 0;
+      ParseNode[] done = new ParseNode[64];
+      int doneSize = 0;
+
+      todo[todoSize++] = node;
+
+      while (todoSize > 0)
+        {
+          int next = todo[--todoSize];
+
+          if (next >= 0 && isLeaf(next))
+            {
+              if (doneSize == done.length)
+                done = Arrays.copyOf(done,2*doneSize);
+              done[doneSize++] = tokens[values[next]];
+              continue;
+            }
+
+          if (next >= 0)
+            {
+              int count = childCounts[next];
+              if (todoSize + count + 1 > todo.length)
+                todo = Arrays.copyOf(todo,Math.max(2*todo.length,todoSize+count+1));
+
+              todo[todoSize++] = ~next;
+              for (int i=firstChildren[next]+count-1; i>=firstChildren[next]; i--)
+                todo[todoSize++] = children[i];
+              continue;
+            }
+
+          next = ~next;
+          int count = childCounts[next];
+          ParseNode parseNode = new ParseNode(symbol(next));
+
+          if (count > 0)
+            {
+              doneSize -= count;
+              parseNode.setChildren(done,doneSize,count,GenericParser.FULL_TREE);
+              parseNode.setSpan(done,doneSize,doneSize+count);
+            }
+
+          if (doneSize == done.length)
+            done = Arrays.copyOf(done,2*doneSize);
+          done[doneSize++] = parseNode;
+        }
+
+      return done[0];
+    }
+
+  /* **************************************************************************** */
+
+  /**
+   * This is the class of cursors navigating a flat tree. A cursor is
+   * positioned on a node, and moves to its children, siblings, and
+   * parent; it remembers the path from the node it was positioned on
+   * (see <tt>moveTo(int)</tt>) to its current node, but nothing above.
+   */
+  public final class Cursor
+  {
+    /**
+     * The nodes from the starting node to the current one, and the position
+     * of each one among its parent's children (counting from 1).
+     */
+    private int[] path = new int[32];
+    private int[] positions = new int[32];
+    private int depth;
+
+    private Cursor (int node)
+      {
+        moveTo(node);
+      }
+
+    /**
+     * Positions this cursor on the specified node, forgetting its path.
+     */
+    public final void moveTo (int node)
+      {
+        path[0] = node;
+        positions[0] = 0;
+        depth = 0;
+      }
+
+    /**
+     * Returns the current node.
+     */
+    public final int node ()
+      {
+        return path[depth];
+      }
+
+    /**
+     * Returns the depth of the current node below the starting node.
+     */
+    public final int depth ()
+      {
+        return depth;
+      }
+
+    /**
+     * Returns the symbol of the current node.
+     */
+    public final ParserSymbol symbol ()
+      {
+        return FlatTree.this.symbol(path[depth]);
+      }
+
+    /**
+     * Returns <tt>true</tt> iff the current node is a leaf.
+     */
+    public final boolean isLeaf ()
+      {
+        return FlatTree.this.isLeaf(path[depth]);
+      }
+
+    /**
+     * Returns the number of children of the current node.
+     */
+    public final int numberOfChildren ()
+      {
+        return childCounts[path[depth]];
+      }
+
+    /**
+     * Returns the token of the current node if it is a leaf, and <tt>null</tt>
+     * otherwise.
+     */
+    public final ParseNode token ()
+      {
+        return FlatTree.this.token(path[depth]);
+      }
+
+    /**
+     * Returns the start offset of the current node.
+     */
+    public final int start ()
+      {
+        return starts[path[depth]];
+      }
+
+    /**
+     * Returns the end offset of the current node.
+     */
+    public final int end ()
+      {
+        return ends[path[depth]];
+      }
+
+    /**
+     * Moves to the <tt>i</tt>-th child of the current node (counting from
+     * <tt>1</tt>) if it exists, and returns <tt>true</tt>; otherwise, stays
+     * put and returns <tt>false</tt>.
+     */
+    public final boolean toChild (int i)
+      {
+        int node = path[depth];
+
+        if (i < 1 || i > childCounts[node])
+          return false;
+
+        if (depth+1 == path.length)
+          {
+            path = Arrays.copyOf(path,2*path.length);
+            positions = Arrays.copyOf(positions,2*positions.length);
+          }
+
+        depth++;
+        path[depth] = children[firstChildren[node]+i-1];
+        positions[depth] = i;
+        return true;
+      }
+
+    /**
+     * Moves to the first child of the current node if it exists, and
+     * returns <tt>true</tt>; otherwise, stays put and returns <tt>false</tt>.
+     */
+    public final boolean toFirstChild ()
+      {
+        return toChild(1);
+      }
+
+    /**
+     * Moves to the next sibling of the current node if it exists, and
+     * returns <tt>true</tt>; otherwise, stays put and returns <tt>false</tt>.
+     * This is never possible from the starting node.
+     */
+    public final boolean toNextSibling ()
+      {
+        if (depth == 0)
+          return false;
+
+        int parent = path[depth-1];
+        int position = positions[depth]+1;
+
+        if (position > childCounts[parent])
+          return false;
+
+        path[depth] = children[firstChildren[parent]+position-1];
+        positions[depth] = position;
+        return true;
+      }
+
+    /**
+     * Moves to the parent of the current node if it is below the starting
+     * node, and returns <tt>true</tt>; otherwise, stays put and returns
+     * <tt>false</tt>.
+     */
+    public final boolean toParent ()
+      {
+        if (depth == 0)
+          return false;
+
+        depth--;
+        return true;
+      }
+
+    /**
+     * Returns the full concrete <tt>ParseNode</tt> tree rooted in the current
+     * node (see <tt>FlatTree.toParseNode(int)</tt>).
+     */
+    public final ParseNode toParseNode ()
+      {
+        return FlatTree.this.toParseNode(path[depth]);
+      }
+
+    public final String toString ()
+      {
+        return symbol()+"@"+node();
+      }
+  }
+}
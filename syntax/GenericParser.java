@@ -4,23 +4,25 @@
 
 package hlt.language.syntax;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.io.Reader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 
 import hlt.language.io.IncludeReader;
 import hlt.language.util.Error;
-import hlt.language.util.Stack;
 import hlt.language.util.Locatable;
 import hlt.language.tools.Debug;
 import hlt.language.tools.Misc;
 
 import org.jdom2.Document;
+import org.jdom2.Element;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
 
+import javax.xml.stream.XMLStreamException;
+
 /**
  * This is the generic parser that is inherited by all parser classes
  * generated by <tt>ParserGenerator</tt>. It is further subclassed by
@@ -41,25 +43,40 @@ public abstract class GenericParser
   /**
    * The members of this class are divided into a static group and non-static
    * group. The latter is the information proper of each individual instance.
-   * The former is all the (read-only) information that is intrinsic to
-   * the parser's <i>class</i> and shared by all parser instances. It comprises
-   * all the tables defining the grammar symbols and rules, and the parsing
-   * automaton as well as all such read-only shareable ressources. These are
-   * initialized in static blocks by the generated parser's class, and are
-   * therefore defined at most once per application upon loading the parser's
-   * class. By constrast, the members that are proper to an individual parser's
+   * The read-only information that is intrinsic to the parser's <i>class</i>
+   * and shared by all parser instances comprises all the tables defining the
+   * grammar symbols and rules, and the parsing automaton. It is kept in a <a
+   * href="ParserTables.html"><tt>ParserTables</tt></a> object owned by the
+   * generated parser's class, initialized in its static block, and therefore
+   * defined at most once per application upon loading the parser's class.
+   * Each parser instance refers to its class's tables (see <tt>tables</tt>).
+   * By constrast, the members that are proper to an individual parser's
    * <i>instance</i> are created when the parser's constructor is called.
    * Thus, a single application may create, and run concurrently, several
    * parsers that are instances of the same class without interference,
-   * while still avoiding the substantial waste of having redundant tables. 
+   * while still avoiding the substantial waste of having redundant tables.
+   * It may also do so for parsers generated from different grammars.
    */
 
   /* **************************************************************************** */
   
   /* INITIALIZATION */
 
-  public GenericParser ()
+  /**
+   * Constructs a parser using the specified tables, which are those of the
+   * generated parser's class.
+   */
+  public GenericParser (ParserTables tables)
     {
+      this.tables = tables;
+      terminals = tables.terminals;
+      nonterminals = tables.nonterminals;
+      rules = tables.rules;
+      states = tables.states;
+      actions = tables.actions;
+      actionTable = tables.actionTable;
+      gotoTable = tables.gotoTable;
+      parseGotoTable = gotoTable;
       initialize();
     }
 
@@ -97,223 +114,202 @@ public abstract class GenericParser
   public final static int XML_TREE     = 3;
 
   /**
-   * The set of parser terminals.
+   * A value indicating to only recognize the input: no semantic action is
+   * performed and no parse tree is built (see <tt>recognize()</tt>).
    */
-  protected static ParserTerminal[] terminals;
+  public final static int RECOGNIZE    = 4;
+
   /**
-   * The set of parser nonterminals.
+   * A value indicating to record the full parse tree in a <a href="FlatTree.html">
+   * <tt>FlatTree</tt></a>: no semantic action is performed and no parse node
+   * is created (see <tt>flatTree()</tt>).
    */
-  protected static ParserNonTerminal[] nonterminals;
+  public final static int FLAT_TREE    = 5;
+
   /**
-   * The set of parser rules.
+   * A value indicating to report the shifts and reductions to a <a href=
+   * "ParseEventHandler.html"><tt>ParseEventHandler</tt></a> rather than
+   * building a parse tree: no semantic action is performed and no parse
+   * node is created (see <tt>parse(ParseEventHandler)</tt>). This mode is
+   * not available to a <a href="DynamicParser.html"><tt>DynamicParser</tt></a>.
    */
-  protected static ParserRule[] rules;
+  public final static int EVENT_TREE   = 6;
+
+  /* **************************************************************************** */
+
   /**
-   * The set of parser states.
+   * Static XML pretty-printing outputter for all our needs.
    */
-  protected static ParserState[] states;
+  private static XMLOutputter _o = new XMLOutputter(Format.getPrettyFormat());
+
+  public static final XMLOutputter xmlWriter ()
+    {
+      return _o;
+    }
+
+  /* **************************************************************************** */
+
+  /* NON-STATIC INFORMATION */
+
   /**
-   * The set of parser actions.
+   * The tables of this parser's class.
    */
-  protected static ParserAction[] actions;
+  protected final ParserTables tables;
+
   /**
-   * The <i>action</i> table.
+   * The set of parser terminals (<i>i.e.</i>, <tt>tables.terminals</tt>).
    */
-  protected static HashMap[] actionTables;
+  protected final ParserTerminal[] terminals;
   /**
-   * The <i>goto</i> table.
+   * The set of parser nonterminals (<i>i.e.</i>, <tt>tables.nonterminals</tt>).
    */
-  protected static HashMap[] gotoTables;
+  protected final ParserNonTerminal[] nonterminals;
   /**
-   * The table associating identifiers to terminals.
+   * The set of parser rules (<i>i.e.</i>, <tt>tables.rules</tt>).
    */
-  protected static final HashMap terminalTable = new HashMap();
+  protected final ParserRule[] rules;
   /**
-   * The table associating identifiers to nonterminals.
+   * The set of parser states (<i>i.e.</i>, <tt>tables.states</tt>).
    */
-  protected static final HashMap nonterminalTable = new HashMap();
-
-  /* **************************************************************************** */
-
+  protected final ParserState[] states;
   /**
-   * Canonical token denoting the end of input.
-   * It gets initialized by the method <tt>newTerminal</tt>.
+   * The set of parser actions (<i>i.e.</i>, <tt>tables.actions</tt>).
    */
-  public static ParseNode E_O_I;
-
+  protected final ParserAction[] actions;
   /**
-   * Returns the end of input token with the current location.
+   * The <i>action</i> table (<i>i.e.</i>, <tt>tables.actionTable</tt>).
    */
-  public static final ParseNode eoi ()
-    {
-      return E_O_I;
-    }
-
+  final ParseTable actionTable;
   /**
-   * Canonical terminal to identify error tokens.
-   * It gets initialized by the method <tt>newTerminal</tt>.
+   * The <i>goto</i> table (<i>i.e.</i>, <tt>tables.gotoTable</tt>).
    */
-  public static ParserTerminal ERROR_SYMBOL;
-
+  final ParseTable gotoTable;
   /**
-   * Returns an error token whose <tt>svalue</tt> is set to the supplied string.
+   * The <i>goto</i> table used by the current parse: this is the table
+   * bypassing unit rules (<i>i.e.</i>, <tt>tables.unitGotoTable</tt>) if
+   * there is one and no parse tree is built, and <tt>gotoTable</tt> otherwise.
    */
-  public static final ParseNode error (String errval)
-    {
-      ParseNode ERROR = new ParseNode(ERROR_SYMBOL);
-      ERROR.setSvalue(errval);
-      return ERROR;
-    }
+  private ParseTable parseGotoTable;
 
   /**
-   * Returns an error token whose <tt>svalue</tt> is set to the supplied ParseNode's
-   * printed value, and whose span is set to that of the supplied node.
+   * The cache of token values used by the int-coded token factory methods.
    */
-  public static final ParseNode error (ParseNode node)
-    {
-      if (node instanceof DynamicToken)
-	{
-          ((DynamicToken)node).setOriginal(node.copy());
-          node.setSvalue(node.toString());
-          node.setSymbol(ERROR_SYMBOL);
-          return node;
-        }
-
-      ParseNode ERROR = new ParseNode(ERROR_SYMBOL);
-
-      ERROR.setSvalue(node.toString());
-      ERROR.setSpan(node);
-      return ERROR;
-    }
-
-  /* **************************************************************************** */
+  protected final SymbolCache symbolCache = new SymbolCache();
 
   /**
-   * The following are conveniences initializing some of the above.
-   * They are used only by the generated parser to set up its parameters.
+   * The following methods are the counterparts of the tokenizing
+   * methods below that take a terminal's code (<i>i.e.</i>, its index, for which
+   * each generated parser class defines a <tt>T_<i>name</i></tt> constant)
+   * rather than its name. Thus, they involve neither name lookup nor
+   * <tt>String.intern()</tt>: a symbol token's value is obtained from this
+   * parser's <tt>symbolCache</tt> (so values must be compared with
+   * <tt>equals</tt>, not <tt>==</tt>).
    */
-  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
-  //                       INITIALIZATION  METHODS                      \\
-  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
-
-  protected static final void newTerminal
-    (int index, String name, int precedence, int associativity)
+  public final ParseNode symbolToken (int code, CharSequence token)
     {
-      name = name.intern();
-      terminalTable.put(name,
-                        new ParserTerminal(name,index,precedence,associativity));
-      if (name == "$E_O_I$")
-	E_O_I = new ParseNode(terminals[index]);
-      if (name == "error")
-	ERROR_SYMBOL = terminals[index];
+      return new ParseNode(terminals[code],symbolCache.get(token));
     }
 
-  protected static final void newNonTerminal (int index, String name)
-    {
-      nonterminalTable.put(name,new ParserNonTerminal(name,index));
-    }
-
-  protected static final ParserTerminal terminal (String name)
+  /**
+   * Returns a token whose value is the specified characters as they are,
+   * typically a <a href="TokenSlice.html"><tt>TokenSlice</tt></a> of the
+   * input: unlike with <tt>symbolToken(int,CharSequence)</tt>, no string
+   * is created unless the token's <tt>svalue()</tt> is called.
+   */
+  public final ParseNode sliceToken (int code, CharSequence chars)
     {
-      return (ParserTerminal)terminalTable.get(name.intern());
+      return new ParseNode(terminals[code],chars);
     }
 
-  protected static final ParserNonTerminal nonterminal (String name)
+  public final ParseNode numberToken (int code, double num)
     {
-      return (ParserNonTerminal)nonterminalTable.get(name.intern());
+      return new ParseNode(terminals[code],num);
     }
 
-  protected static final void newAction (int index, int type, int info)
+  public final ParseNode numberToken (int code, int num)
     {
-      new ParserAction(type,info,index);
+      return new ParseNode(terminals[code],num);
     }
 
-  protected static final void newState (int index)
+  public final ParseNode literalToken (int code)
     {
-      new ParserState(index);
+      return new ParseNode(terminals[code]);
     }
 
-  protected static final void setAction (int table, int terminal, int action)
+  /**
+   * Returns the end of input token of this parser's tables.
+   */
+  public final ParseNode eoi ()
     {
-      actionTables[table].put(terminals[terminal],actions[action]);
+      return tables.eoi();
     }
 
-  protected static final void setGoto (int table, int nonterminal, int state)
+  /**
+   * Returns an error token whose <tt>svalue</tt> is set to the supplied string.
+   */
+  public final ParseNode error (String errval)
     {
-      gotoTables[table].put(nonterminals[nonterminal],states[state]);
+      return tables.error(errval);
     }
 
-  protected static final void newActionTables (int size)
+  /**
+   * Returns an error token whose <tt>svalue</tt> is set to the supplied ParseNode's
+   * printed value, and whose span is set to that of the supplied node.
+   */
+  public final ParseNode error (ParseNode node)
     {
-      actionTables = new HashMap[size];
+      return tables.error(node);
     }
 
-  protected static final void newActionTable (int state, int size)
+  /**
+   * The following methods are public conveniences that may be used by the
+   * class implementing the tokenizer interface. They look up the terminal
+   * symbol by name in this parser's tables. A tokenizer that is not bound
+   * to a parser instance may call the same methods on the <tt>TABLES</tt>
+   * of the generated parser class.
+   */
+  public final ParseNode symbolToken (String symbol, String token)
     {
-      actionTables[state] = (size>0) ? new HashMap(size)
-                                     : new HashMap();
+      return tables.symbolToken(symbol,token);
     }
 
-  protected static final void newGotoTables (int size)
+  public final ParseNode numberToken (String symbol, double num)
     {
-      gotoTables = new HashMap[size];
+      return tables.numberToken(symbol,num);
     }
 
-  protected static final void newGotoTable (int state, int size)
+  public final ParseNode numberToken (String symbol, int num)
     {
-      gotoTables[state] = (size>0) ? new HashMap(size)
-                                   : new HashMap();
+      return tables.numberToken(symbol,num);
     }
 
-  protected static final void setTables (int state, int actions, int gotos)
+  public ParseNode literalToken (String symbol)
     {
-      states[state].setTables(actionTables[actions],gotoTables[gotos]);
+      return tables.literalToken(symbol);
     }
 
   /**
-   * The following methods are public conveniences that may be used by the
-   * class implementing the tokenizer interface.
+   * Returns the terminal with the specified name, or <tt>null</tt> if
+   * there is none.
    */
-  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
-  //                       TOKENIZING      METHODS                      \\
-  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
-
-  public static final ParseNode symbolToken (String symbol, String token)
-    {
-      ParserTerminal term = terminal(symbol);
-      return term == null ? error(symbol + "( " + token + ")")
-			  : new ParseNode(term,token.intern());
-    }
-  
-  public static final ParseNode numberToken (String symbol, double num)
+  protected final ParserTerminal terminal (String name)
     {
-      ParserTerminal term = terminal(symbol);
-      return term == null ? error(symbol + "( " + num + ")")
-			  : new ParseNode(term,num);
+      return tables.terminal(name);
     }
 
-  public static final ParseNode numberToken (String symbol, int num)
-    {
-      ParserTerminal term = terminal(symbol);
-      return term == null ? error(symbol + "( " + num + ")")
-			  : new ParseNode(term,num);
-    }
-
-  public static ParseNode literalToken (String symbol)
+  /**
+   * Returns the nonterminal with the specified name, or <tt>null</tt> if
+   * there is none.
+   */
+  protected final ParserNonTerminal nonterminal (String name)
     {
-      ParserTerminal term = terminal(symbol);
-      return term == null ? error(symbol)
-			  : new ParseNode(term);
+      return tables.nonterminal(name);
     }
 
-  /* ****************************************************************************
-   * The following are static local utilities...
-   * ****************************************************************************/
-
   /**
    * Returns the initial parse state.
    */
-  static final ParserState initialState ()
+  final ParserState initialState ()
     {
       return states[0];
     }
@@ -321,7 +317,7 @@ public abstract class GenericParser
   /**
    * Returns the canonical error action.
    */
-  static final ParserAction errorAction ()
+  final ParserAction errorAction ()
     {
       return actions[0];
     }
@@ -329,25 +325,11 @@ public abstract class GenericParser
   /**
    * Returns the canonical accept action.
    */
-  static final ParserAction acceptAction ()
+  final ParserAction acceptAction ()
     {
       return actions[1];
     }
 
-  /**
-   * Static XML pretty-printing outputter for all our needs.
-   */
-  private static XMLOutputter _o = new XMLOutputter(Format.getPrettyFormat());
-
-  public static final XMLOutputter xmlWriter ()
-    {
-      return _o;
-    }
-
-  /* **************************************************************************** */
-
-  /* NON-STATIC INFORMATION */
-
   //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
   //                       INHERITED   INFORMATION                      \\
   //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
@@ -370,6 +352,16 @@ public abstract class GenericParser
       _o.output(makeXmlDocument(node),out);
       out.println();
     }
+
+  /**
+   * Serializes the XML tree rooted in the specified node on the specified
+   * output stream as it is computed, without building its XML document (see
+   * <a href="XmlStreamSerializer.html"><tt>XmlStreamSerializer</tt></a>).
+   */
+  public void streamXml (ParseNode node, OutputStream out) throws XMLStreamException
+    {
+      new XmlStreamSerializer(xmlroot,xmlRootNSPrefix,namespaces).serialize(node,out);
+    }
  
  /**
    * The XML tree's root's local name.
@@ -400,13 +392,131 @@ public abstract class GenericParser
    */
   public int parseTreeType = NO_TREE;
 
+  /**
+   * Whether, in <tt>XML_TREE</tt> mode, the XML form of each node is built
+   * upon its reduction, and whether the concrete tree is then kept.
+   */
+  private boolean incrementalXml = false;
+  private boolean keepingConcreteTree = false;
+
+  /**
+   * The root element providing the namespace context of the XML forms built
+   * upon reductions by the latest parse (see <tt>setIncrementalXml(boolean)</tt>),
+   * or <tt>null</tt> if they are not.
+   */
+  private Element xmlContext;
+
+  /**
+   * Sets whether, in <tt>XML_TREE</tt> mode, the XML form of each node
+   * is built upon its reduction from those of its children, rather than
+   * by a second pass over the concrete tree once it is parsed (see
+   * <tt>ParseNode.xmlify(Element)</tt>). Each node is then dropped by its
+   * parent as soon as its form has been built, unless the concrete tree
+   * is kept (see <tt>setKeepingConcreteTree(boolean)</tt>); so, the memory
+   * used by the concrete tree of a large input is reclaimed as it is parsed.
+   * The XML document is obtained from the root node as usual (see <tt>makeXmlDocument(ParseNode)</tt>),
+   * and is the same either way.
+   * <p>
+   * The form built for a node is kept by the node, and is the one returned
+   * by <tt>ParseNode.xmlify(Element)</tt>, always in a new list. Its elements
+   * are handed over the first time; since a JDOM element may have only one
+   * parent, deep copies of them are handed over afterwards. Thus, the XML
+   * form of a node may be obtained, serialized, or streamed any number of
+   * times even though the concrete tree below it is gone, until it has been
+   * used to build its parent's form; it is then built anew from the node's
+   * children if they are kept (see <tt>setKeepingConcreteTree(boolean)</tt>),
+   * and is no longer available otherwise.
+   * <p>
+   * <b>NB:</b> the forms of the nodes reduced while a <a href="DynamicParser.html">
+   * <tt>DynamicParser</tt></a> may still backtrack are built only once it
+   * may no longer do so; their children are then kept until their parents'
+   * forms are built.
+   */
+  public final void setIncrementalXml (boolean flag)
+    {
+      incrementalXml = flag;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the XML forms are built upon reductions in
+   * <tt>XML_TREE</tt> mode.
+   */
+  public final boolean isIncrementalXml ()
+    {
+      return incrementalXml;
+    }
+
+  /**
+   * Sets whether the concrete tree is kept when the XML forms are built
+   * upon reductions (see <tt>setIncrementalXml(boolean)</tt>). It is not
+   * by default.
+   */
+  public final void setKeepingConcreteTree (boolean flag)
+    {
+      keepingConcreteTree = flag;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the concrete tree is kept when the XML forms
+   * are built upon reductions.
+   */
+  public final boolean isKeepingConcreteTree ()
+    {
+      return keepingConcreteTree;
+    }
+
+  /**
+   * The flat tree recorded by the latest parse in <tt>FLAT_TREE</tt> mode.
+   */
+  private FlatTree flatTree;
+
+  /**
+   * The index in <tt>flatTree</tt> of the node recorded by the latest
+   * reduction.
+   */
+  private int flatNode;
+
+  /**
+   * Returns the flat tree recorded by the latest parse in <tt>FLAT_TREE</tt>
+   * mode, or <tt>null</tt> if there was none. A new flat tree is created
+   * by each such parse.
+   */
+  public final FlatTree flatTree ()
+    {
+      return flatTree;
+    }
+
+  /**
+   * The handler to which shifts and reductions are reported in
+   * <tt>EVENT_TREE</tt> mode.
+   */
+  private ParseEventHandler eventHandler;
+
+  /**
+   * Sets the handler to which shifts and reductions are reported in
+   * <tt>EVENT_TREE</tt> mode.
+   */
+  public final void setEventHandler (ParseEventHandler handler)
+    {
+      eventHandler = handler;
+    }
+
+  /**
+   * Returns the handler to which shifts and reductions are reported in
+   * <tt>EVENT_TREE</tt> mode.
+   */
+  public final ParseEventHandler eventHandler ()
+    {
+      return eventHandler;
+    }
+
   protected PrintStream out = Options.getOutStream();
   protected PrintStream err = Options.getErrStream();
 
   /**
    * The parser stack.
    */
-  protected Stack parserStack = new Stack();
+  ParserStack parserStack = new ParserStack();
 
   /**
    * The following items must be supplied by the generated parser subclass.
@@ -454,7 +564,7 @@ public abstract class GenericParser
    */
   public ParseNode error ()
     {
-      return new ParseNode(ERROR_SYMBOL);
+      return new ParseNode(tables.errorSymbol());
     }
 
   /**
@@ -463,7 +573,7 @@ public abstract class GenericParser
    */
   public ParseNode currentNode ()
     {
-      if (parsedNode.symbol().name() == "$ROOTS$" && parsedNode.children() != null)
+      if (parsedNode.symbol().name() == "$ROOTS$" && parsedNode.hasChildren())
 	return (ParseNode)parsedNode.lastChild();
       
       return parsedNode;
@@ -499,7 +609,7 @@ public abstract class GenericParser
    */
   void push (ParseNode node)
     {
-      parserStack.push(new ParserStackElement(parseState,node));
+      parserStack.push(parseState.index(),node);
     }
 
   abstract void trace (ParserAction a) throws IOException;
@@ -554,8 +664,9 @@ public abstract class GenericParser
 
   /**
    * Sets the parse tree type to the specified value (one of
-   * <tt>NO_TREE</tt>, <tt>COMPACT_TREE</tt>, <tt>FULL_TREE</tt>, or
-   * <tt>XML_TREE</tt>). Values outside this sets are ignored.
+   * <tt>NO_TREE</tt>, <tt>COMPACT_TREE</tt>, <tt>FULL_TREE</tt>,
+   * <tt>XML_TREE</tt>, <tt>RECOGNIZE</tt>, <tt>FLAT_TREE</tt>, or
+   * <tt>EVENT_TREE</tt>). Values outside this sets are ignored.
    */
   public final void setTreeType (int type)
     {
@@ -563,6 +674,8 @@ public abstract class GenericParser
 	{
 	case NO_TREE: case COMPACT_TREE:
 	case FULL_TREE: case XML_TREE:
+	case RECOGNIZE: case FLAT_TREE:
+	case EVENT_TREE:
 	  parseTreeType = type;
 	  return;
 	default:
@@ -573,8 +686,9 @@ public abstract class GenericParser
     
   /**
    * Sets the parse tree type according to the specified string (one of
-   * <tt>"NONE"</tt>, <tt>"COMPACT"</tt>, <tt>"FULL"</tt>, or
-   * <tt>"XML"</tt>). Values outside this sets are ignored.
+   * <tt>"NONE"</tt>, <tt>"COMPACT"</tt>, <tt>"FULL"</tt>, <tt>"XML"</tt>,
+   * <tt>"RECOGNIZE"</tt>, <tt>"FLAT"</tt>, or <tt>"EVENT"</tt>). Values
+   * outside this sets are ignored.
    */
   public final void setTreeType (String type)
     {
@@ -601,6 +715,24 @@ public abstract class GenericParser
 	  parseTreeType = NO_TREE;
 	  return;
 	}
+
+      if (type.equals("RECOGNIZE"))
+	{
+	  parseTreeType = RECOGNIZE;
+	  return;
+	}
+
+      if (type.equals("FLAT"))
+	{
+	  parseTreeType = FLAT_TREE;
+	  return;
+	}
+
+      if (type.equals("EVENT"))
+	{
+	  parseTreeType = EVENT_TREE;
+	  return;
+	}
     }
     
   /**
@@ -609,15 +741,88 @@ public abstract class GenericParser
    */
   public final void parse () throws IOException
     {
+      startParse();
+      continueParse();
+    }
+
+  /**
+   * The phases of a parsing step at which the parsing loop may be resumed
+   * (see <tt>continueParse()</tt>).
+   */
+  static final int SET_STATE       = 0;
+  static final int GET_ACTION      = 1;
+  static final int PERFORM_ACTION  = 2;
+  static final int SKIP_ERRORS     = 3;
+  static final int ACCEPTED        = 4;
+
+  /**
+   * The phase of the current parsing step.
+   */
+  int parsePhase = SET_STATE;
+
+  /**
+   * Initializes the parser for a new parse without reading any token.
+   */
+  final void startParse ()
+    {
+      if (parseTreeType == EVENT_TREE && !admitsEvents())
+        throw new UnsupportedOperationException("this parser cannot report parse events");
       resetParser();    
-      parserStack.push(new ParserStackElement(initialState(),E_O_I));
-      readTokenFlag = true;;
-      do
-        {
-          setParseState(currentState());
-          getParseAction();
-        }
-      while (performParseAction());
+      parseGotoTable = (parseTreeType == NO_TREE || parseTreeType == RECOGNIZE)
+                     && tables.unitGotoTable != null
+                     ? tables.unitGotoTable : gotoTable;
+      if (sharesNodes() && recognizedNodes == null)
+        recognizedNodes = new ParseNode[nonterminals.length];
+      if (parseTreeType == FLAT_TREE)
+        flatTree = new FlatTree(terminals,nonterminals);
+      xmlContext = parseTreeType == XML_TREE && incrementalXml
+                 ? ParseNode.xmlRoot(xmlroot,xmlRootNSPrefix,namespaces)
+                 : null;
+      parserStack.push(initialState().index(),tables.eoi());
+      readTokenFlag = true;
+      parsePhase = SET_STATE;
+    }
+
+  /**
+   * Runs the parsing loop from the current phase until the input is accepted.
+   * Since each phase is recorded before it is entered, and since a phase
+   * reads a token before modifying the parser's state (or only does what
+   * is harmless to redo, such as choosing among dynamic actions), the loop
+   * may be interrupted by an exception thrown by the tokenizer (as is done
+   * by a <a href="ParseSession.html"><tt>ParseSession</tt></a> when it runs
+   * out of tokens) and then resumed by calling this method again.
+   */
+  final void continueParse () throws IOException
+    {
+      for (;;)
+        switch (parsePhase)
+          {
+          case SET_STATE:
+            setParseState(currentState());
+            parsePhase = GET_ACTION;
+          case GET_ACTION:
+            getParseAction();
+            parsePhase = PERFORM_ACTION;
+          case PERFORM_ACTION:
+            if (rootHandler != null && streamRoot())
+              {
+                parsePhase = SET_STATE;
+                break;
+              }
+            if (!performParseAction())
+              {
+                parsePhase = ACCEPTED;
+                return;
+              }
+            parsePhase = SET_STATE;
+            break;
+          case SKIP_ERRORS:
+            skipErrorTokens();
+            parsePhase = SET_STATE;
+            break;
+          default:
+            return;
+          }
     }
 
   /**
@@ -635,11 +840,18 @@ public abstract class GenericParser
   /**
    * Same as <tt>parse()</tt> but sets the tokenizer's reader to one
    * reading from the file having the specified name before doing the
-   * parse.
+   * parse. If the tokenizer is an <a href="AbstractMappedFileTokenizer.html">
+   * <tt>AbstractMappedFileTokenizer</tt></a>, the file is mapped instead.
    */
   public final void parse (String file) throws IOException
     {
-      parse(new IncludeReader(file));
+      if (input instanceof AbstractMappedFileTokenizer)
+	{
+	  ((AbstractMappedFileTokenizer)input).setFile(file);
+	  parse();
+	}
+      else
+	parse(new IncludeReader(file));
     }
 
   /**
@@ -655,7 +867,8 @@ public abstract class GenericParser
   /**
    * This is the same as <tt>parse()</tt>, but specifies what type of
    * parse tree to build. The value must be one of <tt>NO_TREE</tt>,
-   * <tt>COMPACT_TREE</tt>, <tt>FULL_TREE</tt>, or <tt>XML_TREE</tt>.
+   * <tt>COMPACT_TREE</tt>, <tt>FULL_TREE</tt>, <tt>XML_TREE</tt>,
+   * <tt>FLAT_TREE</tt>, or <tt>EVENT_TREE</tt>.
    * Otherwise, it is ignored.
    */
   public final void parse (int treeType) throws IOException
@@ -664,6 +877,213 @@ public abstract class GenericParser
       parse();
     }
 
+  /**
+   * The handler of the roots parsed when streaming (see <tt>stream(ParseNode,RootHandler)</tt>),
+   * or <tt>null</tt> when not streaming.
+   */
+  private RootHandler rootHandler;
+
+  /**
+   * Parses a sequence of roots of the kind selected by the specified switch
+   * token (see the generated <tt>parse<i>Root</i></tt> methods), and hands
+   * each one to the specified handler as soon as it is parsed. The root is
+   * then popped off the parser stack and the parse goes on with the next
+   * root. Thus, a parse tree is kept for one root at a time, and arbitrarily
+   * long inputs are parsed in constant memory (unless the handler keeps the
+   * roots it is given).
+   * <p>
+   * A root ends when it is reduced by default (<i>i.e.</i>, without reading
+   * the lookahead) or upon reading a lookahead that cannot follow it. In the
+   * latter case, the pending reductions are performed as if at the end of the
+   * input, and the lookahead is then read as the first token of the next
+   * root. The stream ends at the end of the input; thus, an input containing
+   * no root (<i>e.g.</i>, an empty input) is a stream of no roots, whose
+   * parse ends normally without calling the handler. For a <a href="DynamicParser.html">
+   * <tt>DynamicParser</tt></a>, a root ends only when no choice point is left
+   * to backtrack to.
+   */
+  public final void stream (ParseNode switchToken, RootHandler handler) throws IOException
+    {
+      rootHandler = handler;
+
+      try
+        {
+          setSwitchToken(switchToken);
+          parse();
+        }
+      finally
+        {
+          rootHandler = null;
+        }
+    }
+
+  /**
+   * When streaming, this is called before performing the current parse action.
+   * It returns <tt>true</tt> if a root has been handed to <tt>rootHandler</tt>
+   * instead of performing the action, and <tt>false</tt> if the action is to
+   * be performed (which is then the accept action at the end of the stream).
+   */
+  private final boolean streamRoot () throws IOException
+    {
+      if (hasChoicePoints())
+        return false;
+
+      if (!readTokenFlag && tokenNode.isEOI()
+          && parserStack.size() == 2)
+        {
+          // only the switch token is left on the stack: end of the stream
+          parseAction = acceptAction();
+          return false;
+        }
+
+      if (parseAction.type == Action.REDUCE && isRootRule(parseAction))
+        {
+          handleRoot();
+          return true;
+        }
+
+      if (parseAction.type != Action.ERROR || tokenNode.isEOI())
+        return false;
+
+      // The lookahead may start the next root: perform the reductions that
+      // would be performed at the end of the input until the root is parsed.
+      ParserAction error = parseAction;
+      ParserSymbol eoi = tables.eoi().symbol();
+
+      for (;;)
+        {
+          ParserAction action = lookupAction(currentState(),eoi);
+
+          if (action.type != Action.REDUCE)
+            break;
+
+          if (isRootRule(action))
+            {
+              handleRoot();
+              return true;
+            }
+
+          setParseState(currentState());
+          parseAction = action;
+          reduce();
+          if (parseState == null)
+            break;
+        }
+
+      parseAction = error;
+      return false;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the specified action reduces a rule of the
+   * artificial <tt>$ROOTS$</tt> symbol; <i>i.e.</i>, iff a root is on top
+   * of the stack, right above its switch token.
+   */
+  private final boolean isRootRule (ParserAction action)
+    {
+      return rules[action.info].head.name() == "$ROOTS$";
+    }
+
+  /**
+   * Pops the root on top of the stack and hands it to <tt>rootHandler</tt>.
+   */
+  private final void handleRoot () throws IOException
+    {
+      ParseNode root = parserStack.topNode();
+      parserStack.pop();
+      discardEvent();
+      rootHandler.handleRoot(root);
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the parse may still backtrack; this is never
+   * the case here, but it is overridden in <a href="DynamicParser.html">
+   * <tt>DynamicParser</tt></a>.
+   */
+  boolean hasChoicePoints ()
+    {
+      return false;
+    }
+
+  /**
+   * Recognizes the input read by the current tokenizer; <i>i.e.</i>, parses
+   * it in <tt>RECOGNIZE</tt> mode, and returns <tt>true</tt> iff it is
+   * accepted with no error. The errors are reported, with their locations,
+   * to the error manager as usual. In this mode, the parser only drives its
+   * automaton: reductions perform no semantic action and push, for each
+   * nonterminal, a node shared by all its occurrences, which carries no
+   * value and no span (thus, <tt>currentNode()</tt> is meaningless after a
+   * recognition). Note that, for a <a href="DynamicParser.html"><tt>DynamicParser</tt></a>,
+   * this means that operators declared by semantic actions are not declared.
+   * The parse tree type in effect before the recognition is restored after it.
+   */
+  public final boolean recognize () throws IOException
+    {
+      int errors = _errorManager.errorCount();
+      int treeType = parseTreeType;
+      setTreeType(RECOGNIZE);
+
+      try
+        {
+          parse();
+        }
+      catch (FatalParseErrorException e)
+        {
+          return false;
+        }
+      finally
+        {
+          parseTreeType = treeType;
+        }
+
+      return _errorManager.errorCount() == errors;
+    }
+
+  /**
+   * Same as <tt>recognize()</tt> but sets the tokenizer to the specified one
+   * before doing the recognition.
+   */
+  public final boolean recognize (Tokenizer input) throws IOException
+    {
+      this.input = input;
+      return recognize();
+    }
+
+  /**
+   * Parses the input read by the current tokenizer in <tt>EVENT_TREE</tt>
+   * mode, reporting its shifts and reductions to the specified handler
+   * as they are performed. The parse tree type in effect before the parse
+   * is restored after it. This throws an <tt>UnsupportedOperationException</tt>
+   * for a <a href="DynamicParser.html"><tt>DynamicParser</tt></a> (see
+   * <tt>admitsEvents()</tt>).
+   */
+  public final void parse (ParseEventHandler handler) throws IOException
+    {
+      int treeType = parseTreeType;
+      setEventHandler(handler);
+      setTreeType(EVENT_TREE);
+
+      try
+        {
+          parse();
+        }
+      finally
+        {
+          parseTreeType = treeType;
+        }
+    }
+
+  /**
+   * Returns <tt>true</tt> iff this parser may parse in <tt>EVENT_TREE</tt>
+   * mode; this is always the case here, but it is overridden in <a href=
+   * "DynamicParser.html"><tt>DynamicParser</tt></a>, whose events could not
+   * be retracted upon backtracking.
+   */
+  boolean admitsEvents ()
+    {
+      return true;
+    }
+
   /**
    * This is the same as <tt>parse()</tt>, but specifies building
    * the parse tree: <tt>true</tt> is equivalent to <tt>FULL_TREE</tt>,
@@ -687,7 +1107,7 @@ public abstract class GenericParser
    */
   protected final ParseNode node (ParserRule r, int n)
     {
-      return ((ParserStackElement)parserStack.peek(r.length-n)).getNode();
+      return parserStack.node(parserStack.size()-1-r.length+n);
     }
 
   /**
@@ -697,7 +1117,7 @@ public abstract class GenericParser
    */
   protected final void replaceStackNode (ParserRule r, int n,ParseNode node)
     {
-      ((ParserStackElement)parserStack.peek(r.length-n)).setNode(node);
+      parserStack.setNode(parserStack.size()-1-r.length+n,node);
     }
 
   /**
@@ -708,7 +1128,7 @@ public abstract class GenericParser
   protected ParserState previousState;          // previous state of the parse
   protected ParserAction parseAction;           // parse action to perform
   protected ParserRule parseRule;               // rule to use for reduction
-  protected ParserStackElement[] parseHandle;   // recognized handle being reduced
+  protected ParseNode[] parseHandle;            // recognized handle being reduced (when tracing)
   protected ParseNode tokenNode;                // latest token read
   protected ParseNode parsedNode;               // result returned by the action
 
@@ -733,7 +1153,7 @@ public abstract class GenericParser
    */
   final ParserState currentState ()
     {
-      return ((ParserStackElement)parserStack.peek()).getState();
+      return states[parserStack.topState()];
     }
 
   public final Error syntaxError (String msg)
@@ -787,7 +1207,7 @@ public abstract class GenericParser
           abort();
         }
 
-      String cause = (culprit.symbol() == ERROR_SYMBOL)
+      String cause = culprit.isError()
 		   ? (culprit.svalue() == null ? "garbage": culprit.svalue())
 		   : culprit.toString();
 
@@ -821,9 +1241,20 @@ public abstract class GenericParser
               abort();
             }
           parserStack.pop();
+          discardEvent();
         }
     }
 
+  /**
+   * In <tt>EVENT_TREE</tt> mode, reports that the top node of the stack
+   * has been popped without being reduced.
+   */
+  private final void discardEvent () throws IOException
+    {
+      if (parseTreeType == EVENT_TREE && eventHandler != null)
+        eventHandler.discard();
+    }
+
   /**
    * In an error-handling state, performs action to shift 'error'.
    * <p>
@@ -842,7 +1273,7 @@ public abstract class GenericParser
   private final void performErrorAction () throws IOException
     {
       setParseState(currentState());
-      parseAction = parseState.getAction((ParserTerminal)tokenNode.symbol());
+      parseAction = lookupAction(parseState,tokenNode.symbol());
       performParseAction();
     }
 
@@ -851,6 +1282,9 @@ public abstract class GenericParser
    */
   private final void skipErrorTokens () throws IOException
     {
+      // this is where to resume if the tokenizer is interrupted:
+      parsePhase = SKIP_ERRORS;
+
       do readToken();
       while (!tokenNode.isEOI() && !symbolIsHandled(tokenNode.symbol()));	
 
@@ -864,9 +1298,18 @@ public abstract class GenericParser
 
   final boolean symbolIsHandled (ParserSymbol symbol)
     {
-      return currentState().actionTable.containsKey(symbol);
+      return actionTable.contains(currentState().index(),symbol.index());
     } 
 
+  /**
+   * Returns the action to perform in the specified state upon the specified
+   * terminal symbol; this is the canonical error action if there is none.
+   */
+  final ParserAction lookupAction (ParserState state, ParserSymbol symbol)
+    {
+      return actions[actionTable.get(state.index(),symbol.index(),0)];
+    }
+
   final ParserState setParseState (ParserState state)
     {
       previousState = parseState;
@@ -876,16 +1319,23 @@ public abstract class GenericParser
 
   final void changeState () throws IOException
     {
-      setParseState(currentState().getGoto((ParserNonTerminal)parsedNode.symbol()));
+      int state = parseGotoTable.get(currentState().index(),parsedNode.symbol().index(),-1);
+      setParseState(state < 0 ? null : states[state]);
     }
 
   final void shift () throws IOException
     {
-      setParseState(states[parseAction.info]);
+      // the token must be read before anything is modified (see continueParse()):
       ParseNode shiftedNode = tokenNode();
-      if (shiftedNode.isTerminal())
+      setParseState(states[parseAction.info]);
+      if (shiftedNode.isTerminal() && !sharesNodes())
 	shiftedNode.setXmlInfo(((ParserTerminal)shiftedNode.symbol()).xmlInfo());
       push(shiftedNode);
+      if (parseTreeType == FLAT_TREE)
+        parserStack.setFlatIndex(flatTree.addLeaf(shiftedNode));
+      else
+        if (parseTreeType == EVENT_TREE && eventHandler != null)
+          eventHandler.shift(shiftedNode);
       if (trace)
 	trace(parseAction);
       readTokenFlag = true;
@@ -894,54 +1344,121 @@ public abstract class GenericParser
   final void reduce () throws IOException
     {
       parseRule = rules[parseAction.info];
-      parsedNode = semanticAction(parseRule);
+      parsedNode = sharesNodes() ? recognizedNode(parseRule.head)
+                                 : semanticAction(parseRule);
       popHandle();
       changeState();
       push(parsedNode);
+      if (parseTreeType == FLAT_TREE)
+        parserStack.setFlatIndex(flatNode);
       if (trace)
 	trace(parseAction);
     }
 
+  /**
+   * Returns <tt>true</tt> iff the current tree type is one in which
+   * reductions perform no semantic action and push a node shared by all
+   * the occurrences of a nonterminal; <i>i.e.</i>, <tt>RECOGNIZE</tt>,
+   * <tt>FLAT_TREE</tt>, or <tt>EVENT_TREE</tt>.
+   */
+  private final boolean sharesNodes ()
+    {
+      return parseTreeType == RECOGNIZE
+          || parseTreeType == FLAT_TREE
+          || parseTreeType == EVENT_TREE;
+    }
+
+  /**
+   * The nodes pushed in <tt>RECOGNIZE</tt>, <tt>FLAT_TREE</tt>, and
+   * <tt>EVENT_TREE</tt> modes, indexed by nonterminal.
+   */
+  private ParseNode[] recognizedNodes;
+
+  /**
+   * Returns the node standing for all the occurrences of the specified
+   * nonterminal in <tt>RECOGNIZE</tt>, <tt>FLAT_TREE</tt>, and
+   * <tt>EVENT_TREE</tt> modes.
+   */
+  private final ParseNode recognizedNode (ParserNonTerminal head)
+    {
+      ParseNode node = recognizedNodes[head.index()];
+      if (node == null)
+        node = recognizedNodes[head.index()] = new ParseNode(head);
+      return node;
+    }
+
   /**
    * Pops the <i>n</i> latest elements on the parser stack, where
    * <i>n</i> is the length of the current rule's RHS. This may also
-   * build a parse tree as specified by <tt>parseTreeType</tt>.
+   * build a parse tree as specified by <tt>parseTreeType</tt>. The
+   * handle is read in place on the stack before being popped; it is
+   * copied into <tt>parseHandle</tt> only when tracing.
    */
-  void popHandle ()
+  void popHandle () throws IOException
     {
-      parseHandle = new ParserStackElement[parseRule.length];
+      int length = parseRule.length;
+      int base = parserStack.base(length);
+      ParseNode[] handle = parserStack.nodes();
 
-      for (int i = parseRule.length; i-->0;)
-        parseHandle[i] = (ParserStackElement)parserStack.pop();
-
-      if (parseHandle.length > 0)
-	parsedNode.setSpan(parseHandle);
-      else
-	parsedNode.setSpan(tokenNode.getStart(),
-			   tokenNode.getStart());
+      // in RECOGNIZE, FLAT_TREE, and EVENT_TREE modes, the pushed node
+      // is shared and has no span:
+      if (!sharesNodes())
+	{
+	  if (length > 0)
+	    parsedNode.setSpan(handle,base,base+length);
+	  else
+	    if (readTokenFlag)
+	      // this is a default reduction: the lookahead has not been read
+	      // and the empty handle is located at the end of the stack's top
+	      parsedNode.setSpan(parserStack.topNode().getEnd(),
+				 parserStack.topNode().getEnd());
+	    else
+	      parsedNode.setSpan(tokenNode.getStart(),
+				 tokenNode.getStart());
+	}
 
       switch (parseTreeType)
 	{
-	case NO_TREE:
+	case NO_TREE: case RECOGNIZE:
+	  break;
+	case FLAT_TREE:
+	  // record the node in the flat tree before the handle is dropped:
+	  flatNode = flatTree.addNode(parseRule.head,parserStack,base,length);
+	  break;
+	case EVENT_TREE:
+	  if (eventHandler != null)
+	    eventHandler.reduce(parseRule);
 	  break;
 	case XML_TREE:
 	  // Set the XML info of parsedNode to that of the reducing
 	  // rule:
 	  parsedNode.setXmlInfo(parseRule.xmlInfo());
-	  // NB: This falls through to the default case on purpose!
-	  // This is to enable the full concrete tree to be built. Only
-	  // a second pass will build the actual XML tree, and even then
-	  // only if and when it is accessed through the ParseNode's
-	  // xmlify(...) method using the XmlInfo from the reducing
-	  // rule's info.
+	  // The full concrete tree is built; a second pass will build the
+	  // actual XML tree, if and when it is accessed through the
+	  // ParseNode's xmlify(...) method using the XmlInfo from the
+	  // reducing rule's info - unless it is built upon reductions:
+	  parsedNode.setChildren(handle,base,length,parseTreeType);
+	  // NB: the roots' forms are left to be built when accessed, and
+	  // so are those of reductions that may be undone by backtracking:
+	  if (xmlContext != null && parseRule.head.name() != "$ROOTS$" && !hasChoicePoints())
+	    parsedNode.reduceXmlForm(xmlContext,keepingConcreteTree);
+	  break;
 	default:
-	  // FULL, COMPACT, or XML: add the child to parsedNode using
-	  // parsedNode.addChild(ParseNode, TreeType) according to the
-	  // tree type.
-	  for (int i=0; i<parseHandle.length; i++)
-	    parsedNode.addChild(parseHandle[i].getNode(),
-				parseTreeType);
+	  // FULL or COMPACT: set the children of parsedNode at once
+	  // using parsedNode.setChildren(ParseNode[],int,int,int) according
+	  // to the tree type.
+	  parsedNode.setChildren(handle,base,length,parseTreeType);
 	}
+
+      if (trace)
+	{
+	  parseHandle = new ParseNode[length];
+	  System.arraycopy(handle,base,parseHandle,0,length);
+	}
+      else
+	parseHandle = null;
+
+      parserStack.drop(length);
     }
 
   /**
@@ -1039,8 +1556,10 @@ public abstract class GenericParser
                     "\n      to state: "+parseState);
           break;
         case Action.REDUCE:
-          err.println("  Seeing token: "+tokenNode()+
-                    "\n    located in: "+location()+
+          err.println((readTokenFlag
+                       ? " Default action (lookahead not read)"
+                       : "  Seeing token: "+tokenNode()+
+                         "\n    located in: "+location())+
                     "\n      in state: "+previousState+
                     "\n reducing with: "+rule()+
                     "\n      to state: "+parseState);
@@ -1057,13 +1576,30 @@ public abstract class GenericParser
       showParseState();
     }
 
+  /**
+   * Returns a string listing the terminals handled by the current state.
+   */
+  final String handledSymbols ()
+    {
+      StringBuilder buf = new StringBuilder("{");
+      int state = currentState().index();
+
+      for (int i=0; i<terminals.length; i++)
+        if (actionTable.contains(state,i))
+          buf.append(buf.length() == 1 ? "" : ", ").append(terminals[i])
+             .append("=").append(actions[actionTable.get(state,i,0)]);
+
+      return buf.append("}").toString();
+    }
+
   String rule ()
     {
       if (parseRule != null)
 	{
           String s = parseRule.toString();
-          for (int i=0; i<parseRule.length; i++)
-            s += parseHandle[i].getNode() + " ";
+          if (parseHandle != null)
+            for (int i=0; i<parseHandle.length; i++)
+              s += parseHandle[i] + " ";
           return s;
         }
       return null;
@@ -1082,7 +1618,7 @@ public abstract class GenericParser
       err.println("parseAction\t= "    + parseAction);
       err.println("parseRule\t= "      + rule());
       err.println(Misc.view(parserStack,"parserStack",0,50));
-      err.println("handledSymbols\t= " + currentState().actionTable);
+      err.println("handledSymbols\t= " + handledSymbols());
       err.println
         ("-------------------------------------------------------------------");
     }
@@ -48,6 +48,18 @@ public class Jacc extends Command
       defineOption("m",
                    String.valueOf(Options.getInitMethodSize()),
                    "max number of instructions in parser initialization method");
+      defineOption("bin",
+                   "",
+                   "write the parser tables into a binary resource file (Foo.tables)");
+      defineOption("map",
+                   "",
+                   "same as -bin, but map the tables file into memory when loading it");
+      defineOption("keepunits",
+                   "",
+                   "do not bypass unit rule reductions when building no parse tree");
+      defineOption("split",
+                   "",
+                   "generate one method per semantic action (for large grammars)");
       defineOption("amb",
                    "",
                    "allow ambiguous actions (for dynamic parsing)");
@@ -142,6 +154,10 @@ public class Jacc extends Command
 
           Options.setVerbosity(Integer.parseInt(getOption("v")));
           Options.setInitMethodSize(Integer.parseInt(getOption("m")));
+          Options.setBinaryTables(optionIsPresent("bin"));
+          Options.setMappedTables(optionIsPresent("map"));
+          Options.setKeepUnitRules(optionIsPresent("keepunits"));
+          Options.setSplitActions(optionIsPresent("split"));
           Options.setTrailHistory(Integer.parseInt(getOption("trail")));
           Options.setChoiceHistory(Integer.parseInt(getOption("choices")));
           Options.setResolveRRsWithPrecedence(optionIsPresent("rrp"));
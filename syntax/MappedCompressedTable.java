@@ -0,0 +1,85 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.nio.IntBuffer;
+
+/**
+ * This is the class of <a href="ParseTable.html"><tt>ParseTable</tt></a>s laid
+ * out as a <a href="CompressedTable.html"><tt>CompressedTable</tt></a>, but
+ * whose <tt>base</tt>, <tt>check</tt>, and <tt>value</tt> arrays are read-only
+ * views of a memory-mapped binary tables resource (see <a href="ParserTables.html">
+ * <tt>ParserTables.map(Class,String)</tt></a>) rather than heap arrays. Thus, it
+ * costs nothing to build, and its pages are shared by all the processes mapping
+ * the same file.
+ *
+ * @see         ParseTable
+ * @see         CompressedTable
+ * @see         ParserTables
+ */
+
+public class MappedCompressedTable implements ParseTable
+{
+  private final IntBuffer base;
+  private final IntBuffer check;
+  private final IntBuffer value;
+
+  /**
+   * Constructs a table with the specified views. The <tt>check</tt> and
+   * <tt>value</tt> views must have the same length, and this length must
+   * allow any row's base plus any column's index.
+   */
+  public MappedCompressedTable (IntBuffer base, IntBuffer check, IntBuffer value)
+    {
+      this.base = base;
+      this.check = check;
+      this.value = value;
+    }
+
+  public final int rowCount ()
+    {
+      return base.limit();
+    }
+
+  public final int size ()
+    {
+      return value.limit();
+    }
+
+  public final boolean contains (int row, int column)
+    {
+      int b = base.get(row);
+      return check.get(b+column) == b;
+    }
+
+  public final int get (int row, int column, int absent)
+    {
+      int b = base.get(row);
+      int slot = b+column;
+      return check.get(slot) == b ? value.get(slot) : absent;
+    }
+
+  /**
+   * Returns the table written by <tt>CompressedTable.write(DataOutputStream)</tt>
+   * at the current position of <tt>data</tt>, which is advanced past the table.
+   * The returned table's arrays are views of <tt>data</tt>: nothing is copied.
+   */
+  public static MappedCompressedTable read (IntBuffer data)
+    {
+      IntBuffer base = view(data);
+      IntBuffer check = view(data);
+      IntBuffer value = view(data);
+      return new MappedCompressedTable(base,check,value);
+    }
+
+  private static final IntBuffer view (IntBuffer data)
+    {
+      int length = data.get();
+      IntBuffer view = data.slice();
+      view.limit(length);
+      data.position(data.position()+length);
+      return view;
+    }
+}
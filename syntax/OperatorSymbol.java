@@ -70,6 +70,14 @@ public abstract class OperatorSymbol extends Symbol
           &&  this.name.equals(that.name));
     }
 
+  /**
+   * Returns a hash code consistent with <tt>equals(Object)</tt>.
+   */
+  public final int hashCode ()
+    {
+      return 31*name.hashCode() + fixity;
+    }
+
   /**
    * Decodes and interprets the contents of a Prolog-style operator
    * specifier string.
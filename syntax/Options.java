@@ -97,6 +97,91 @@ public final class Options
 
   /* ******************************************************************* */
 
+  /**
+   * When set, the parser tables are written into a binary resource file
+   * (<i>e.g.</i>, <tt>FooParser.tables</tt>) next to the parser's source
+   * file, and loaded from it by the parser's static initialization, rather
+   * than initialized by generated code (default: <tt>false</tt>).
+   */  
+     
+  private static boolean binaryTables = false;
+
+  public final static boolean getBinaryTables ()
+    {
+      return binaryTables;
+    }
+
+  public final static void setBinaryTables (boolean flag)
+    {
+      binaryTables = flag;
+    }
+
+  /* ******************************************************************* */
+
+  /**
+   * When set (which implies <tt>binaryTables</tt>), the parser's static
+   * initialization maps the binary tables resource into memory when it is
+   * a plain file, and reads the action and goto tables in place (default:
+   * <tt>false</tt>).
+   */  
+     
+  private static boolean mappedTables = false;
+
+  public final static boolean getMappedTables ()
+    {
+      return mappedTables;
+    }
+
+  public final static void setMappedTables (boolean flag)
+    {
+      mappedTables = flag;
+      if (flag) binaryTables = true;
+    }
+
+  /* ******************************************************************* */
+
+  /**
+   * When set, no goto table bypassing unit rules is generated, so that
+   * all unit reductions are performed even when no parse tree is built
+   * (default: <tt>false</tt>).
+   */  
+     
+  private static boolean keepUnitRules = false;
+
+  public final static boolean getKeepUnitRules ()
+    {
+      return keepUnitRules;
+    }
+
+  public final static void setKeepUnitRules (boolean flag)
+    {
+      keepUnitRules = flag;
+    }
+
+  /* ******************************************************************* */
+
+  /**
+   * When set, each rule's semantic action (and undo action) is generated
+   * as a method of its own, <tt>semanticAction(ParserRule)</tt> being only
+   * a dispatching <tt>switch</tt>. Thus, no generated method is too large
+   * for the JIT compiler, however many semantic actions there are (default:
+   * <tt>false</tt>).
+   */  
+     
+  private static boolean splitActions = false;
+
+  public final static boolean getSplitActions ()
+    {
+      return splitActions;
+    }
+
+  public final static void setSplitActions (boolean flag)
+    {
+      splitActions = flag;
+    }
+
+  /* ******************************************************************* */
+
   /**
    * The output stream (default: <tt>System.out</tt>).
    */  
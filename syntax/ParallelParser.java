@@ -0,0 +1,375 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This is the class of parallel front ends for parsing large inputs made of
+ * a sequence of independent roots (see <tt>GenericParser.stream(ParseNode,RootHandler)</tt>),
+ * each of which ends with a synchronization terminal such as <tt>"."</tt>
+ * or <tt>";"</tt>. The input is pre-scanned and split into chunks of at
+ * least <tt>chunkSize</tt> characters, each one ending at the end of a line
+ * whose last non-blank characters are the synchronization terminal. The
+ * chunks are then parsed concurrently on a <tt>ForkJoinPool</tt>, each one
+ * by a parser leased from a <a href="ParserPool.html"><tt>ParserPool</tt></a>
+ * and reading a tokenizer created by a <a href="TokenizerFactory.html">
+ * <tt>TokenizerFactory</tt></a> that numbers its lines from the chunk's
+ * first line. Thus, the roots' spans are those they would have if the
+ * input was parsed as a whole. Finally, the chunks' roots are concatenated
+ * in order.
+ * <p>
+ * Since the pre-scan ignores the lexical structure of the input, a chunk
+ * boundary may be wrong (<i>e.g.</i>, if the separator occurs at the end
+ * of a line within a multi-line quoted string). This shows as an error
+ * while parsing some chunk, the errors reported for chunks being recorded
+ * rather than reported. Then, the whole input is parsed again sequentially
+ * by a parser from the pool, reporting errors to its own error manager as
+ * usual.
+ * <p>
+ * The parsers must not be <a href="DynamicParser.html"><tt>DynamicParser</tt></a>s:
+ * their operator definitions, which are made by semantic actions, would not
+ * be seen by the chunks parsed by other parsers, and would be kept by pooled
+ * parsers from one chunk to another, so that the result of a parse would
+ * depend on how the chunks are distributed among the parsers.
+ *
+ * @see         ParserPool
+ * @see         TokenizerFactory
+ * @see         RootHandler
+ */
+
+public class ParallelParser
+{
+  /**
+   * The pool of parsers parsing the chunks.
+   */
+  private final ParserPool parsers;
+
+  /**
+   * The factory of the chunks' tokenizers.
+   */
+  private final TokenizerFactory tokenizers;
+
+  /**
+   * The switch token selecting the kind of roots to parse (this is one of
+   * the <tt>$<i>ROOT</i>_SWITCH$</tt> constants of the generated parser).
+   */
+  private final ParseNode switchToken;
+
+  /**
+   * The synchronization terminal ending each root.
+   */
+  private final String separator;
+
+  /**
+   * The pool running the chunks' parses.
+   */
+  private final ForkJoinPool pool;
+
+  /**
+   * The minimum number of characters of a chunk.
+   */
+  private int chunkSize = 1 << 20;
+
+  /**
+   * Constructs a parallel parser running on the common <tt>ForkJoinPool</tt>.
+   */
+  public ParallelParser (ParserFactory factory, TokenizerFactory tokenizers,
+                         ParseNode switchToken, String separator)
+    {
+      this(factory,tokenizers,switchToken,separator,ForkJoinPool.commonPool());
+    }
+
+  /**
+   * Constructs a parallel parser running on the specified <tt>ForkJoinPool</tt>.
+   * Throws an <tt>IllegalArgumentException</tt> if the specified factory
+   * creates <tt>DynamicParser</tt>s.
+   */
+  public ParallelParser (ParserFactory factory, TokenizerFactory tokenizers,
+                         ParseNode switchToken, String separator, ForkJoinPool pool)
+    {
+      parsers = new ParserPool(factory,pool.getParallelism());
+
+      GenericParser parser = parsers.lease();
+      if (parser instanceof DynamicParser)
+        throw new IllegalArgumentException("a parallel parser cannot use dynamic parsers");
+      parsers.release(parser);
+
+      this.tokenizers = tokenizers;
+      this.switchToken = switchToken;
+      this.separator = separator;
+      this.pool = pool;
+    }
+
+  /**
+   * Sets the minimum number of characters of a chunk.
+   */
+  public final void setChunkSize (int size)
+    {
+      chunkSize = Math.max(1,size);
+    }
+
+  /**
+   * Returns the minimum number of characters of a chunk.
+   */
+  public final int chunkSize ()
+    {
+      return chunkSize;
+    }
+
+  /**
+   * Parses the specified input, and returns the list of its roots in order.
+   */
+  public final ArrayList parse (CharSequence text) throws IOException
+    {
+      int[] chunks = split(text);
+
+      if (chunks.length > 4)
+        {
+          ArrayList roots = parseChunks(text,chunks);
+          if (roots != null)
+            return roots;
+        }
+
+      return parseSequentially(text);
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       SPLITTING       METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Returns the chunks of the specified text as an array of alternating
+   * start positions and first line numbers, the last pair of which is the
+   * end of the text. A blank remainder after the last cut is not a chunk of
+   * its own, but is merged into the last chunk.
+   */
+  private final int[] split (CharSequence text)
+    {
+      int[] chunks = new int[16];
+      int count = 0;
+      int length = text.length();
+      int line = 1;
+      int start = 0;
+      int lastNonBlank = -1;
+
+      chunks[count++] = 0;
+      chunks[count++] = 1;
+
+      for (int i=0; i<length; i++)
+        {
+          char c = text.charAt(i);
+
+          if (c != '\n')
+            {
+              if (!Character.isWhitespace(c))
+                lastNonBlank = i;
+              continue;
+            }
+
+          line++;
+
+          if (i+1-start >= chunkSize && endsWithSeparator(text,lastNonBlank))
+            {
+              if (count+2 > chunks.length)
+                chunks = grow(chunks);
+              start = i+1;
+              chunks[count++] = start;
+              chunks[count++] = line;
+            }
+        }
+
+      if (start < length)
+        if (count > 2 && lastNonBlank < start)
+          { // a blank remainder is merged into the last chunk:
+            chunks[count-2] = length;
+            chunks[count-1] = line;
+          }
+        else
+          {
+            if (count+2 > chunks.length)
+              chunks = grow(chunks);
+            chunks[count++] = length;
+            chunks[count++] = line;
+          }
+
+      int[] result = new int[count];
+      System.arraycopy(chunks,0,result,0,count);
+      return result;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the specified text has the separator ending at
+   * the specified position.
+   */
+  private final boolean endsWithSeparator (CharSequence text, int end)
+    {
+      int start = end+1-separator.length();
+      if (start < 0)
+        return false;
+
+      for (int i=0; i<separator.length(); i++)
+        if (text.charAt(start+i) != separator.charAt(i))
+          return false;
+
+      return true;
+    }
+
+  private static final int[] grow (int[] array)
+    {
+      int[] newArray = new int[2*array.length];
+      System.arraycopy(array,0,newArray,0,array.length);
+      return newArray;
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       PARSING         METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Parses the specified chunks concurrently, and returns the list of their
+   * roots in order, or <tt>null</tt> if some chunk could not be parsed.
+   */
+  private final ArrayList parseChunks (CharSequence text, int[] chunks) throws IOException
+    {
+      int count = chunks.length/2 - 1;
+      Future[] results = new Future[count];
+
+      for (int i=0; i<count; i++)
+        {
+          final String chunk = text.subSequence(chunks[2*i],chunks[2*i+2]).toString();
+          final int firstLine = chunks[2*i+1];
+          results[i] = pool.submit(new Callable()
+            {
+              public Object call () throws IOException
+                {
+                  return parseChunk(chunk,firstLine);
+                }
+            });
+        }
+
+      ArrayList roots = new ArrayList();
+
+      for (int i=0; i<count; i++)
+        {
+          ArrayList chunkRoots;
+
+          try
+            {
+              chunkRoots = (ArrayList)results[i].get();
+            }
+          catch (InterruptedException e)
+            {
+              cancel(results);
+              Thread.currentThread().interrupt();
+              throw new InterruptedIOException();
+            }
+          catch (ExecutionException e)
+            {
+              cancel(results);
+              if (e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+              if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+              throw new RuntimeException(e.getCause());
+            }
+
+          if (chunkRoots == null)
+            {
+              cancel(results);
+              return null;
+            }
+
+          roots.addAll(chunkRoots);
+        }
+
+      return roots;
+    }
+
+  private static final void cancel (Future[] results)
+    {
+      for (int i=0; i<results.length; i++)
+        results[i].cancel(false);
+    }
+
+  /**
+   * Parses the specified chunk with a parser from the pool, recording rather
+   * than reporting errors, and returns the list of its roots in order, or
+   * <tt>null</tt> if an error occurred.
+   */
+  private final ArrayList parseChunk (String chunk, int firstLine) throws IOException
+    {
+      GenericParser parser = parsers.lease();
+      ErrorManager errorManager = parser.errorManager();
+      RecordingErrorManager errors = new RecordingErrorManager();
+      errors.recoverFromErrors(false);
+      final ArrayList roots = new ArrayList();
+
+      try
+        {
+          parser.setErrorManager(errors);
+          parser.setTokenizer(tokenizers.newTokenizer(new StringReader(chunk),firstLine));
+          parser.stream(switchToken,new RootHandler()
+            {
+              public void handleRoot (ParseNode root)
+                {
+                  roots.add(root);
+                }
+            });
+        }
+      catch (FatalParseErrorException e)
+        {
+          return null;
+        }
+      finally
+        {
+          parser.setErrorManager(errorManager);
+          parsers.release(parser);
+        }
+
+      return errors.hasErrors() ? null : roots;
+    }
+
+  /**
+   * Parses the whole specified text with a parser from the pool, and returns
+   * the list of its roots in order.
+   */
+  private final ArrayList parseSequentially (CharSequence text) throws IOException
+    {
+      GenericParser parser = parsers.lease();
+      final ArrayList roots = new ArrayList();
+
+      try
+        {
+          parser.setTokenizer(tokenizers.newTokenizer(new StringReader(text.toString()),1));
+          parser.errorManager().recoverFromErrors(false);
+          parser.stream(switchToken,new RootHandler()
+            {
+              public void handleRoot (ParseNode root)
+                {
+                  roots.add(root);
+                }
+            });
+        }
+      finally
+        {
+          parsers.release(parser);
+        }
+
+      return roots;
+    }
+}
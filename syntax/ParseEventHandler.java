@@ -0,0 +1,55 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.io.IOException;
+
+/**
+ * This is the interface of the objects to which a parser reports its shifts
+ * and reductions when parsing in <tt>EVENT_TREE</tt> mode (see <tt>GenericParser.parse(ParseEventHandler)</tt>),
+ * instead of building a parse tree. The events describe the full concrete
+ * parse tree in postorder: each token is reported, in document order, when
+ * it is shifted; and each node is reported when its rule is reduced, right
+ * after the last node of its handle. Thus, the children of a reduced node
+ * are the <tt>rule.length</tt> nodes most recently reported and not yet
+ * reduced (in order), so that a handler may compute whatever it needs
+ * for each node from the results computed for its children, keeping the
+ * pending results on a stack whose size never exceeds that of the parser's
+ * stack. No tree is retained by the parser.
+ * <p>
+ * Since an LR parser recognizes a node only when it reduces it, that is
+ * when all its tokens have been read, there is no event for entering a node
+ * before its first token: this would require buffering all the events of
+ * the node's tokens.
+ * <p>
+ * Since events may not be retracted, a <a href="DynamicParser.html"><tt>DynamicParser</tt></a>,
+ * which may undo reductions upon backtracking, does not parse in <tt>EVENT_TREE</tt>
+ * mode.
+ *
+ * @see         GenericParser
+ */
+
+public interface ParseEventHandler
+{
+  /**
+   * This is called with each token when it is shifted.
+   */
+  public void shift (ParseNode token) throws IOException;
+
+  /**
+   * This is called when the specified rule is reduced: the reduced node's
+   * children are the <tt>rule.length</tt> latest pending nodes, which the
+   * reduced node replaces.
+   */
+  public void reduce (ParserRule rule) throws IOException;
+
+  /**
+   * This is called when the latest pending node is dropped without being
+   * reduced (<i>i.e.</i>, when it is popped from the parser's stack while
+   * recovering from a syntax error, or when it is handed over as a root
+   * by <tt>GenericParser.stream(ParseNode,RootHandler)</tt>).
+   */
+  public void discard () throws IOException;
+}
@@ -10,8 +10,11 @@ import hlt.language.util.Locatable;
 import hlt.language.util.Span;
 import hlt.language.util.ArrayList;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.io.PrintStream;
 import java.io.IOException;
 
@@ -74,6 +77,7 @@ public class ParseNode implements Locatable
   public ParseNode (ParserSymbol symbol)
     {
       _symbol = symbol;
+      _hash = 0;
     }
 
   /**
@@ -109,6 +113,19 @@ public class ParseNode implements Locatable
       _symbol = symbol;
       _svalue = value;
     }
+
+  /**
+   * Constructs a <tt>ParseNode</tt> object with its <tt>symbol</tt>
+   * field initialized to the specified parser symbol and its string
+   * value to the specified characters, which are turned into a
+   * <tt>String</tt> only if and when <tt>svalue()</tt> is called
+   * (see <a href="TokenSlice.html"><tt>TokenSlice</tt></a>).
+   */
+  public ParseNode (ParserSymbol symbol, CharSequence value)
+    {
+      _symbol = symbol;
+      _svalue = value;
+    }
   
   /**
    * Constructs a <tt>ParseNode</tt> object that is a (shallow) copy of
@@ -117,11 +134,12 @@ public class ParseNode implements Locatable
   public ParseNode (ParseNode node)
     {
       _symbol       = node.symbol();
-      _svalue       = node.svalue();
+      _svalue       = node._svalue;
       _nvalue       = node.nvalue();
       _isInteger    = node.isInteger();
-      _alternatives = node.alternatives();
-      _children     = node.children();
+      if (node.hasAlternatives())
+        extension().alternatives = node.alternatives();
+      _children     = node._children;
       _span         = node.getSpan();
     }
 
@@ -129,6 +147,35 @@ public class ParseNode implements Locatable
   // Fields and methods
   /* **************************************************************** */
 
+  /**
+   * This holds the fields that are used by few nodes, so that the others
+   * do not pay for them: the alternatives of an ambiguous token, the
+   * operator of a dynamic operator token, and the XML annotation, form,
+   * and document. It is allocated only when one of them is set (see
+   * <tt>extension()</tt>).
+   */
+  private static final class Extension
+  {
+    ArrayList alternatives;
+    ParserOperator operator;
+    ArrayList xmlForm;
+    ArrayList reducedXmlForm;
+    boolean xmlFormHandedOver;
+    boolean xmlFormConsumed;
+    Document xmlDocument;
+    XmlInfo xmlInfo;
+  }
+
+  private Extension _extension;
+
+  /**
+   * Returns the extension of this node, creating it if need be.
+   */
+  private final Extension extension ()
+    {
+      return _extension == null ? _extension = new Extension() : _extension;
+    }
+
   private ParserSymbol _symbol;
 
   /**
@@ -154,6 +201,7 @@ public class ParseNode implements Locatable
   public void setSymbol (ParserSymbol symbol)
     {
       _symbol = symbol;
+      _hash = 0;
     }
 
   /* **************************************************************** */
@@ -176,6 +224,7 @@ public class ParseNode implements Locatable
   public void setNvalue (double nvalue)
     {
       _nvalue = nvalue;
+      _hash = 0;
     }
 
   private boolean _isInteger = false;
@@ -196,39 +245,87 @@ public class ParseNode implements Locatable
   public void makeInteger (boolean isInteger)
     {
       _isInteger = isInteger;
+      _hash = 0;
     }
 
-  private String _svalue;
+  /**
+   * The string value of this node: this is either a <tt>String</tt>, or a
+   * character sequence (such as a <tt>TokenSlice</tt>) that is replaced by
+   * its <tt>String</tt> form when <tt>svalue()</tt> is first called.
+   */
+  private CharSequence _svalue;
 
   /**
    * The String value of this node.
    */
   public String svalue ()
+    {
+      if (_svalue == null || _svalue instanceof String)
+        return (String)_svalue;
+
+      String svalue = _svalue.toString();
+      _svalue = svalue;
+      return svalue;
+    }
+
+  /**
+   * Returns the string value of this node as it is stored; <i>i.e.</i>,
+   * without turning it into a <tt>String</tt>. This may be used to test
+   * or hash the value of a token without materializing it (see
+   * <tt>svalueEquals(CharSequence)</tt>).
+   */
+  public final CharSequence svalueChars ()
     {
       return _svalue;
     }
 
+  /**
+   * Returns <tt>true</tt> iff the string value of this node is made of
+   * the same characters as the specified sequence, without turning it
+   * into a <tt>String</tt>.
+   */
+  public final boolean svalueEquals (CharSequence chars)
+    {
+      if (_svalue == null || chars == null)
+        return _svalue == chars;
+
+      if (_svalue instanceof TokenSlice)
+        return ((TokenSlice)_svalue).contentEquals(chars);
+
+      return svalue().contentEquals(chars);
+    }
+
   /**
    * Sets the String value of this node.
    */
   public void setSvalue (String svalue)
     {
       _svalue = svalue;
+      _hash = 0;
+    }
+
+  /**
+   * Sets the string value of this node to the specified characters, which
+   * are turned into a <tt>String</tt> only if and when <tt>svalue()</tt>
+   * is called.
+   */
+  public void setSvalue (CharSequence svalue)
+    {
+      _svalue = svalue;
+      _hash = 0;
     }
 
   /* **************************************************************** */
   // Non-Deterministic Token Node Information:
   /* **************************************************************** */
 
-  private ArrayList _alternatives;
-
   /**
    * If non-null, this contains alternative forms of an ambiguous
    * token.
    */
   public ArrayList alternatives ()
     {
-      return _alternatives;
+      return _extension == null ? null : _extension.alternatives;
     }
 
   /**
@@ -236,10 +333,12 @@ public class ParseNode implements Locatable
    */
   public void addAlternative (ParseNode alternative)
     {
-      if (_alternatives == null)
-        _alternatives = new ArrayList(2);
+      Extension extension = extension();
+
+      if (extension.alternatives == null)
+        extension.alternatives = new ArrayList(2);
 
-      _alternatives.add(alternative);
+      extension.alternatives.add(alternative);
     }
 
   /**
@@ -248,7 +347,7 @@ public class ParseNode implements Locatable
    */
   public boolean hasAlternatives ()
     {
-      return _alternatives != null;
+      return _extension != null && _extension.alternatives != null;
     }
 
   public boolean isUnknown ()
@@ -289,20 +388,20 @@ public class ParseNode implements Locatable
       return _span;
     }
 
-  final ParseNode setSpan (ParserStackElement[] handle)
+  final ParseNode setSpan (ParseNode[] handle, int from, int to)
     {
       ParseNode start = null;
       ParseNode end = null;
 
-      for (int i=0; i<handle.length; i++)
+      for (int i=from; i<to; i++)
         {
-          start = handle[i].getNode();
+          start = handle[i];
           if (start.isLocated()) break;
         }
 
-      for (int i=handle.length; i-->0;)
+      for (int i=to; i-->from;)
         {
-          end = handle[i].getNode();
+          end = handle[i];
           if (end.isLocated()) break;
         }
 
@@ -434,22 +533,40 @@ public class ParseNode implements Locatable
   // Subtree Information:
   /* **************************************************************** */
 
-  private ArrayList _children;
+  /**
+   * The constituents of this node, or <tt>null</tt> if it has none. This
+   * array is allocated with its exact size when the node is reduced (see
+   * <tt>setChildren(ParseNode[],int,int,int)</tt>), and never modified
+   * afterwards; it may thus be shared by copies of this node.
+   */
+  private ParseNode[] _children;
 
   /**
    * When constructing the parse tree, this is the set of constituents.
    * If a parse tree has been built (by <tt>GenericParser.parse(boolean)</tt>),
-   * this returns the sequence of <tt>ParseNode</tt>s that are this node's
-   * constituents. Otherwise, returns <tt>null</tt>.
+   * this returns a read-only list view of the sequence of <tt>ParseNode</tt>s
+   * that are this node's constituents. Otherwise, returns <tt>null</tt>.
+   * Since this view is created anew by each call, it is more efficient to
+   * iterate over the constituents using <tt>numberOfChildren()</tt> and
+   * <tt>child(int)</tt>.
    */
-  public final ArrayList children ()
+  public final List children ()
     {
-      return _children;
+      if (_children == null)
+        return null;
+
+      return Collections.unmodifiableList(Arrays.asList(_children));
     }
 
-  public void setChildren (ArrayList children)
+  /**
+   * Sets the constituents of this node to the <tt>ParseNode</tt>s of the
+   * specified list, or to none if it is <tt>null</tt>.
+   */
+  public void setChildren (List children)
     {
-      _children = children;
+      _children = children == null
+                ? null
+                : (ParseNode[])children.toArray(new ParseNode[children.size()]);
     }
 
   /**
@@ -459,7 +576,7 @@ public class ParseNode implements Locatable
     {
       if (_children == null)
         return 0;
-      return _children.size();
+      return _children.length;
     }
 
   /**
@@ -468,64 +585,101 @@ public class ParseNode implements Locatable
    */
   final ParseNode getChild (int n)
     {
-      if (_children == null || n < 0 || n > _children.size())
+      if (_children == null || n < 0 || n >= _children.length)
         return null;
 
-      return (ParseNode)_children.get(n);
+      return _children[n];
     }
 
   /**
-   * Adds the specified <tt>ParseNode</tt> to the set of constituents of
-   * this node to build a parse tree.
+   * Sets the constituents of this node to the <tt>length</tt> nodes of the
+   * specified handle starting at index <tt>base</tt>, as specified by the
+   * tree type. When <tt>treeType</tt> is <tt>GenericParser.FULL_TREE</tt>,
+   * or <tt>GenericParser.XML_TREE</tt> (<i>i.e.</i>, when building the
+   * full concrete syntax tree), the nodes are set as is; otherwise, the
+   * nodes that are not leaves are replaced by a "leaner" tree structure
+   * than the raw syntax tree obtained from them by eliminating empty
+   * reduction branches, collapsing single-child branches into a node
+   * labeled like its lowermost node, and flattenning immediate symbol
+   * recursion (<i>i.e.</i>, a nonterminal occurring in the RHS of a rule
+   * having it as LHS). In the latter case, the number of constituents is
+   * computed first, so that in all cases the array of constituents is
+   * allocated once with its exact size.
    */
-  final void addChild (ParseNode kid)
+  final void setChildren (ParseNode[] handle, int base, int length, int treeType)
     {
-      if (_children == null)
-        _children = new ArrayList();
+      if (treeType == GenericParser.FULL_TREE
+       || treeType == GenericParser.XML_TREE)
+        {
+          if (length == 0)
+            _children = null;
+          else
+            {
+              _children = new ParseNode[length];
+              System.arraycopy(handle,base,_children,0,length);
+            }
+          return;
+        }
 
-      _children.add(kid);
+      // COMPACT_TREE:
+
+      int size = 0;
+      for (int i=base; i<base+length; i++)
+        size = addCompactChild(handle[i],null,size);
+
+      if (size == 0)
+        {
+          _children = null;
+          return;
+        }
+
+      ParseNode[] children = new ParseNode[size];
+      size = 0;
+      for (int i=base; i<base+length; i++)
+        size = addCompactChild(handle[i],children,size);
+
+      _children = children;
     }
 
   /**
-   * When <tt>treeType</tt> is <tt>GenericParser.FULL_TREE</tt>, or
-   * <tt>GenericParser.FULL_TREE</tt> (<i>i.e.</i>, when building the
-   * full concrete syntax tree), this will add the specified child as is;
-   * otherwise, adds a child that is a "leaner" tree structure than the
-   * raw syntax tree of the specified child node obtained from it by
-   * eliminating empty reduction branches, collapsing single-child
-   * branches into a node labeled like its lowermost node, and
-   * flattenning immediate symbol recursion (<i>i.e.</i>, a nonterminal
-   * occurring in the RHS of a rule having it as LHS).
+   * Stores the compacted form of the specified child node in the specified
+   * array starting at index <tt>n</tt>, and returns the index past it. If the
+   * array is <tt>null</tt>, this only returns that index.
    */
-  final void addChild (ParseNode kid, int treeType)
+  private final int addCompactChild (ParseNode kid, ParseNode[] children, int n)
     {
-	if (treeType == GenericParser.FULL_TREE
-	 || treeType == GenericParser.XML_TREE
-	 || kid.isLeafNode())
+      if (kid.isLeafNode())
         {
-          addChild(kid);
-          return;
+          if (children != null)
+            children[n] = kid;
+          return n+1;
         }
 
-      // COMPACT_TREE:
+      ParseNode[] kids = kid._children;
 
       // eliminate empty nodes:
-      if (kid.isEmptyNode())
-        return;
+      if (kids == null)
+        return n;
 
       // shorten linear branches to the most specific node:
-      if (kid.children().size() == 1)
+      if (kids.length == 1)
         {
-          addChild(kid.getChild(0));
-          return;
+          if (children != null)
+            children[n] = kids[0];
+          return n+1;
         }
 
       // flatten sequences:
       if (_symbol.name() == kid.symbol().name())
-        for (int j=0; j<kid.children().size(); j++)
-          addChild(kid.getChild(j));
-      else
-        addChild(kid);
+        {
+          if (children != null)
+            System.arraycopy(kids,0,children,n,kids.length);
+          return n+kids.length;
+        }
+
+      if (children != null)
+        children[n] = kid;
+      return n+1;
     }
 
   Object[] nodes (ParserStackElement[] handle)
@@ -549,7 +703,7 @@ public class ParseNode implements Locatable
    */       
   public final boolean hasChildren ()
     {
-      return _children != null && _children.size() != 0;
+      return _children != null && _children.length != 0;
     }
 
   /**
@@ -594,7 +748,7 @@ public class ParseNode implements Locatable
    */       
   public final String stringValue ()
     {
-      return _svalue != null ? _svalue
+      return _svalue != null ? svalue()
                              : _isInteger ? Integer.toString((int)_nvalue)
                                           : Double.toString(_nvalue);
     }
@@ -625,7 +779,7 @@ public class ParseNode implements Locatable
     {
       if (_children == null)
         return null;
-      return (ParseNode)_children.get(i-1);
+      return _children[i-1];
     }
 
   /**
@@ -647,21 +801,19 @@ public class ParseNode implements Locatable
     {
       if (_children == null)
         return null;
-      return (ParseNode)_children.get(_children.size()-1);
+      return _children[_children.length-1];
     }
 
   /* **************************************************************** */
   // Operator Information:
   /* **************************************************************** */
 
-  private ParserOperator _operator;
-
   /**
    * If this is a dynamic operator, the actual specific operator.
    */
   public ParserOperator operator ()
     {
-      return _operator;
+      return _extension == null ? null : _extension.operator;
     }
 
   /**
@@ -669,7 +821,9 @@ public class ParseNode implements Locatable
    */
   public void setOperator (ParserOperator operator)
     {
-      _operator = operator;
+      if (operator != null || _extension != null)
+        extension().operator = operator;
+      _hash = 0;
     }
 
   /**
@@ -677,7 +831,7 @@ public class ParseNode implements Locatable
    */
   public final boolean isOperator ()
     {
-      return (_operator != null);
+      return _extension != null && _extension.operator != null;
     }
 
   /**
@@ -686,7 +840,7 @@ public class ParseNode implements Locatable
    */
   public final int precedence ()
     {
-      if (isOperator()) return _operator.precedence();
+      if (isOperator()) return _extension.operator.precedence();
       return ((ParserTerminal)_symbol).precedence();
     }
 
@@ -696,7 +850,7 @@ public class ParseNode implements Locatable
    */
   public final int associativity ()
     {
-      if (isOperator()) return _operator.associativity();
+      if (isOperator()) return _extension.operator.associativity();
       return ((ParserTerminal)_symbol).associativity();
     }
 
@@ -706,7 +860,7 @@ public class ParseNode implements Locatable
    */
   public final int fixity ()
     {
-      if (isOperator()) return _operator.fixity();
+      if (isOperator()) return _extension.operator.fixity();
       return -1;
     }
 
@@ -726,7 +880,7 @@ public class ParseNode implements Locatable
     {
       ParseNode copy = new ParseNode(node);
       copy.setSymbol(_symbol);
-      copy.setChildren(null);
+      copy.setChildren((List)null);
       copy.resetSpan();
       return copy;
     }
@@ -790,8 +944,8 @@ public class ParseNode implements Locatable
       out.println(this);
 
       if (!isLeafNode() && _children != null)
-        for (int i=0; i<_children.size(); i++)
-          getChild(i).show(margin+3,out);
+        for (int i=0; i<_children.length; i++)
+          _children[i].show(margin+3,out);
     }
 
   /**
@@ -831,7 +985,7 @@ public class ParseNode implements Locatable
    *      whenever this node corresponds to an <i>annotated</i> terminal, or
    *      a reduction with any <i>annotated</i> derivation;
    *
-   * <li> <span style="color:blue">the <b>concatenation</b> of the <tt>_xmlForms</tt>
+   * <li> <span style="color:blue">the <b>concatenation</b> of the <tt>xmlForm()</tt>s
    *      of this <tt>ParseNode</tt>'s children</span>, whenever this
    *      node corresponds to an reduction with <i><u>un</u>annotated</i>
    *      <u>non</u>-empty derivation.
@@ -839,8 +993,6 @@ public class ParseNode implements Locatable
    * </ul>
    *
    */
-  private ArrayList _xmlForm;
-
   /**
    * Returns the (possibly empty) list of XML elements associated with
    * this parse node.  This XML form is synthesized from the concrete
@@ -860,7 +1012,7 @@ public class ParseNode implements Locatable
    */
   public final ArrayList xmlForm ()
     {
-      return _xmlForm;
+      return _extension == null ? null : _extension.xmlForm;
     }
 
   /**
@@ -892,11 +1044,6 @@ public class ParseNode implements Locatable
 	    out.println("null");
     }
  
-  /**
-   * This is the JDOM XML document associated with this parse node, if any.
-   */
-  private Document _xmlDocument;
-
   /**
    * Returns the JDOM XML document associated with this parse node, if any,
    * or <tt>null</tt> otherwise.
@@ -910,7 +1057,7 @@ public class ParseNode implements Locatable
    */
   public final Document xmlDocument ()
     {
-      return _xmlDocument;
+      return _extension == null ? null : _extension.xmlDocument;
     }
 
   /**
@@ -922,59 +1069,106 @@ public class ParseNode implements Locatable
    * inductively of that of this node's descendants below it in the CST)
    * as a (possibly empty) list of JDOM XML <tt>Element</tt>s for the
    * CST rooted in this <tt>ParseNode</tt>.  This XML form is then
-   * recorded as this node's <tt>_xmlForm</tt>. Finally, all the
+   * recorded as this node's <tt>xmlForm()</tt>. Finally, all the
    * elements in this form are attached in the order they come as
    * contents to the root of a JDOM XML <tt>Document</tt>, which is then
-   * saved as this node's <tt>_xmlDocument</tt>.  Further calls will
-   * simply return the saved <tt>_xmlDocument</tt>.
+   * saved as this node's <tt>xmlDocument()</tt>.  Further calls will
+   * simply return the saved <tt>xmlDocument()</tt>.
    *
    */
   public Document xmlDocument (String xmlroot, String nsprefix, String[] namespaces)
     {
-      if (_xmlDocument == null)
+      Extension extension = extension();
+
+      if (extension.xmlDocument == null)
       // this does not have an associated XML Document;
       // so we need to create one:
 	{
 	  // create the root Element:
-	  Element root = new Element(xmlroot);
-	  // Process namespace declarations if any:
-	  if (namespaces != null)
-	    for (int i=0; i<namespaces.length/2; i++)
-	      {
-		String prefix = namespaces[2*i];
-		String url = namespaces[2*i+1];
-		Namespace ns = Namespace.getNamespace(prefix,url);
-		root.addNamespaceDeclaration(ns);
-		if (prefix == nsprefix)
-		  root.setNamespace(ns);
-	      }
+	  Element root = xmlRoot(xmlroot,nsprefix,namespaces);
 
 	  // generate this node's XML form to be the contents of root,
-	  // and store it in _xmlForm:
-	  _xmlForm = xmlify(root);
+	  // and store it in the extension's xmlForm:
+	  extension.xmlForm = xmlify(root);
 	  
-	  // add each element in _xmlForm to the contents of root:
-	  for (Iterator i=_xmlForm.iterator(); i.hasNext();)
+	  // add each element in xmlForm to the contents of root:
+	  for (Iterator i=extension.xmlForm.iterator(); i.hasNext();)
 	    root.addContent((Element)i.next());
 
 	  // create an XML document with root as root element:
-	  _xmlDocument = new Document(root);
+	  extension.xmlDocument = new Document(root);
 
 	  // time-stamp the XML document:
-	  _xmlDocument
+	  extension.xmlDocument
 	    .addContent(new Comment("XML document generated on "
 				    +(new Date())));
 	}
 
       // return the XML document:
-      return _xmlDocument;
+      return extension.xmlDocument;
     }
 
   /**
-   * This is a storage recording the XML annotation for this parse node
-   * if any.
+   * Returns a new root element named as specified by <tt>xmlroot</tt>
+   * and <tt>nsprefix</tt> declaring the namespaces specified in
+   * <tt>namespaces</tt> as an array of alternating prefixes and URIs.
    */
-  private XmlInfo _xmlInfo = null;
+  static final Element xmlRoot (String xmlroot, String nsprefix, String[] namespaces)
+    {
+      Element root = new Element(xmlroot);
+      // Process namespace declarations if any:
+      if (namespaces != null)
+	for (int i=0; i<namespaces.length/2; i++)
+	  {
+	    String prefix = namespaces[2*i];
+	    String url = namespaces[2*i+1];
+	    Namespace ns = Namespace.getNamespace(prefix,url);
+	    root.addNamespaceDeclaration(ns);
+	    if (prefix == nsprefix)
+	      root.setNamespace(ns);
+	  }
+      return root;
+    }
+
+  /**
+   * Builds the XML form of this node in the context of the specified root
+   * element from those of its children, which must have been built already
+   * (or be built from their own children), and records it to be handed
+   * over by <tt>xmlify(Element)</tt>. Unless <tt>keepTree</tt>
+   * is <tt>true</tt>, this node's children are then dropped, so that the
+   * concrete tree below it may be reclaimed. This is used by a parser
+   * building the XML forms upon reductions (see <tt>GenericParser.setIncrementalXml(boolean)</tt>).
+   */
+  final void reduceXmlForm (Element root, boolean keepTree)
+    {
+      ArrayList xmlForm = xmlify(root);
+
+      if (!keepTree)
+        _children = null;
+
+      extension().reducedXmlForm = xmlForm;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff this node's XML form has been built upon its
+   * reduction (see <tt>reduceXmlForm(Element,boolean)</tt>).
+   */
+  final boolean hasReducedXmlForm ()
+    {
+      return _extension != null && _extension.reducedXmlForm != null;
+    }
+
+  /**
+   * Returns this node's XML form as built upon its reduction if it has not
+   * been handed over by <tt>xmlify(Element)</tt> yet, or <tt>null</tt>
+   * otherwise (see <tt>reduceXmlForm(Element,boolean)</tt>). The returned
+   * list and its elements must not be altered.
+   */
+  final ArrayList reducedXmlForm ()
+    {
+      return _extension == null || _extension.xmlFormHandedOver
+             ? null : _extension.reducedXmlForm;
+    }
 
   /**
    * Returns the XML annotation for this parse node, if any, or
@@ -993,7 +1187,7 @@ public class ParseNode implements Locatable
    */
   XmlInfo xmlInfo ()
     {
-      return _xmlInfo;
+      return _extension == null ? null : _extension.xmlInfo;
     }
     
   /**
@@ -1002,7 +1196,8 @@ public class ParseNode implements Locatable
    */
   public ParseNode setXmlInfo (XmlInfo info)
     {
-      _xmlInfo = info;
+      if (info != null || _extension != null)
+        extension().xmlInfo = info;
       return this;
     }
   
@@ -1018,12 +1213,21 @@ public class ParseNode implements Locatable
    * href="http://www.jdom.org/docs/apidocs/uml/org/jdom/Element.html">
    * <tt>Element</tt></a> objects corresponding to the form of this
    * node's XML serialization. This list is then recorded as this parse
-   * node's <tt>_xmlForm</tt>. This method uses the information stored
+   * node's <tt>xmlForm()</tt>. This method uses the information stored
    * in this node (which is a full CST) together with the (possibly
-   * <tt>null</tt>) XML info stored in its private field
-   * <tt>_xmlInfo</tt>. When non-<tt>null</tt>, this <tt>_xmlInfo</tt>
+   * <tt>null</tt>) XML info stored in its extension
+   * <tt>xmlInfo()</tt>. When non-<tt>null</tt>, this <tt>xmlInfo()</tt>
    * specifies a guiding pattern according to which this node's XML form
    * is generated as a singleton <tt>ArrayList</tt> <tt>Element</tt>.
+   * However, if this node's XML form has already been built upon its
+   * reduction (see <tt>reduceXmlForm(Element,boolean)</tt>), a new list
+   * of that form's elements is returned instead the first time, and a new
+   * list of deep copies of them afterwards, so that the XML form of a
+   * subtree may be obtained more than once even though its concrete tree
+   * has been dropped. Once the elements handed over have been used to
+   * build the form of this node's parent (which may alter them), the form
+   * is built anew from this node's children if they have been kept, and
+   * an <tt>IllegalStateException</tt> is thrown otherwise.
    *
    * <p>
    *
@@ -1038,12 +1242,12 @@ public class ParseNode implements Locatable
    * of of type <a
    * href="http://www.jdom.org/docs/uml/org/jdom/Element.html">
    * <tt>Element</tt></a>), which is then recorded as the
-   * <tt>_xmlForm</tt> field of this <tt>ParseNode</tt>. Thus, a parse
+   * <tt>xmlForm()</tt> of this <tt>ParseNode</tt>. Thus, a parse
    * node may be transduced into either (1) nothing, or (2) an
    * <tt>Element</tt>, or (3) a sequence thereof. This transduction is
    * performed inductively (<i>i.e.</i>, from the leaves to the root)
    * using the transduction information specified as this node's
-   * <tt>XmlInfo</tt> attribute <tt>_xmlInfo</tt> (which may be possibly
+   * <tt>XmlInfo</tt> attribute <tt>xmlInfo()</tt> (which may be possibly
    * <tt>null</tt>).
    *
    * <p>
@@ -1055,29 +1259,29 @@ public class ParseNode implements Locatable
    *
    * <ul>
    *
-   * <li><tt style="color:blue">_xmlInfo.localName()</tt>:
+   * <li><tt style="color:blue">xmlInfo().localName()</tt>:
    *        an XML element's name (a <tt>String</tt>);
    *
-   * <p><li><tt style="color:blue">_xmlInfo.nsPrefix()</tt>:
+   * <p><li><tt style="color:blue">xmlInfo().nsPrefix()</tt>:
    *         an XML namespace's prefix (a <tt>String</tt>);
    *
-   * <p><li><tt style="color:blue">_xmlInfo.attributes()</tt>: an
+   * <p><li><tt style="color:blue">xmlInfo().attributes()</tt>: an
    *        array of <a
    *        href="XmlAttributeInfo.html"><tt>XmlAttributeInfo</tt></a>'s.
    *        Each <tt>XmlAttributeInfo</tt> specifies an attribute key/value
    *        pair of this node's XML form.
    *
-   * <p><li><tt style="color:blue">_xmlInfo.children()</tt>:
+   * <p><li><tt style="color:blue">xmlInfo().children()</tt>:
    *        an <tt>int[]</tt> containing indices in this
    *        <tt>ParseNode</tt>'s <tt>children()</tt>.  If
-   *        <tt>_xmlInfo.children()[i]=j</tt>, this means that the XML
+   *        <tt>xmlInfo().children()[i]=j</tt>, this means that the XML
    *        form of the <tt>j</tt><sup>th</sup> child CST constitutes the
    *        <tt>i</tt><sup>th</sup> (possibly empty) subsequence of this
    *        node's XML form.
    *
-   * <p><li><tt style="color:blue">_xmlInfo.xmlPaths()</tt>: an
+   * <p><li><tt style="color:blue">xmlInfo().xmlPaths()</tt>: an
    *        <tt>int[][]</tt> containing paths of XML subtree indices
-   *        such that, if <tt>_xmlInfo.xmlPaths()[i]</tt> is non
+   *        such that, if <tt>xmlInfo().xmlPaths()[i]</tt> is non
    *        <tt>null</tt> and equal to some <tt>int[] path<sub>i</sub></tt>,
    *        then <tt>path<sub>i</sub></tt> denotes the XML tree address
    *        consisting of a sequence of indices of XML subcomponents,
@@ -1085,9 +1289,9 @@ public class ParseNode implements Locatable
    *        child <tt>ParseNode</tt> at index <tt>children()[i]</tt>, and
    *        navigating down the XML tree therefrom.
    *
-   * <p><li><tt style="color:blue">_xmlInfo.wrapperPaths()</tt>: a
+   * <p><li><tt style="color:blue">xmlInfo().wrapperPaths()</tt>: a
    *        <tt>String[][]</tt> containing sequences of XML tags
-   *        such that, if <tt>_xmlInfo.wrapperPaths()[i]</tt> is non
+   *        such that, if <tt>xmlInfo().wrapperPaths()[i]</tt> is non
    *        <tt>null</tt> and equal to some <tt>String[] path<sub>i</sub></tt>,
    *        then <tt>path<sub>i</sub></tt> denotes the wrapping XML
    *        elements in which to nest the XML tree constructed from
@@ -1097,7 +1301,7 @@ public class ParseNode implements Locatable
    *
    * This information comes from explicit annotations of the grammar's
    * rules or terminals. When it is absent (<i>i.e.</i>,
-   * <tt>_xmlInfo</tt> is <tt>null</tt>), a (sensible) default behavior
+   * <tt>xmlInfo()</tt> is <tt>null</tt>), a (sensible) default behavior
    * for building the XML tree is carried out (see <span
    * style="color:red"> Case II</span> below).
    *
@@ -1109,7 +1313,7 @@ public class ParseNode implements Locatable
    * <ol type="I" style="color:red">
    * <li> Create a new <tt>ArrayList</tt> called <b><tt>xmlForm</tt></b>;
    * <p>
-   * <li> If there is no explicit annotation (<i>i.e.</i>, if <tt>_xmlInfo</tt>
+   * <li> If there is no explicit annotation (<i>i.e.</i>, if <tt>xmlInfo()</tt>
    *      <u>is</u> <tt>null</tt>), the default behavior is as follows:  
    *
    *      <ol type="1" style="color:brown">
@@ -1147,7 +1351,7 @@ public class ParseNode implements Locatable
    *      </ol>
    *
    * <p>
-   * <li> Else, there is an explicit annotation (<i>i.e.</i>, <tt>_xmlInfo</tt>
+   * <li> Else, there is an explicit annotation (<i>i.e.</i>, <tt>xmlInfo()</tt>
    *      is <u>not</u> <tt>null</tt>):
    *
    *      <ol type="1" style="color:brown">
@@ -1157,14 +1361,14 @@ public class ParseNode implements Locatable
    *           <li> If this node's symbol is a non-terminal with no children:<br>
    *
    *                <i style="color:tan">[<b>N.B.</b>,
-   *                <tt>_xmlInfo.children()</tt> is then null or empty
+   *                <tt>xmlInfo().children()</tt> is then null or empty
    *                since there may be no reference to children in an
    *                empty derivation's annotation - <a
    *                href="http://www.hassan-ait-kaci.net/hlt/doc/hlt/code/language/syntax/xml/XmlAnnotationDoc/XmlAnnotationSpecification.html#consistency">
    *                here's why</a>]</i>
    *                
    *                <ul style="color:black">
-   *                   <li> create a new XML <tt>Element</tt> using <tt>_xmlInfo</tt>;
+   *                   <li> create a new XML <tt>Element</tt> using <tt>xmlInfo()</tt>;
    *                   <li> add this element to <tt>xmlForm</tt>;
    *                </ul>
    *                
@@ -1183,7 +1387,7 @@ public class ParseNode implements Locatable
    *
    *                <li> Else (it has a value):<br>
    *
-   *                     <i style="color:tan">[<b>N.B.</b>: <tt>_xmlInfo.children()</tt> is then
+   *                     <i style="color:tan">[<b>N.B.</b>: <tt>xmlInfo().children()</tt> is then
    *                     null or empty since there may be no reference to children
    *                     in a terminal's annotation - <a
    *                     href="http://hassan-ait-kaci.net/hlt/doc/hlt/code/language/syntax/xml/XmlAnnotationDoc/XmlAnnotationSpecification.html#consistency">here's why</a>]</i>
@@ -1191,7 +1395,7 @@ public class ParseNode implements Locatable
    *
    *                     <ul style="color:black">
    *                        <li> create a new XML <tt>Element</tt> using
-   *                             <tt>_xmlInfo</tt>;
+   *                             <tt>xmlInfo()</tt>;
    *                        <li> add to it only one <tt>Text</tt> component
    *                             containing the value of the node as contents;
    *                        <li> add this new element to <tt>xmlForm</tt>;
@@ -1204,7 +1408,7 @@ public class ParseNode implements Locatable
    *      <li> Else (<i>i.e.</i>, this is an interior node):
    *
    *           <ul style="color:black">
-   *               <li> create a new XML <tt>Element</tt> using <tt>_xmlInfo</tt>;
+   *               <li> create a new XML <tt>Element</tt> using <tt>xmlInfo()</tt>;
    *               <li> add it to <tt>xmlForm</tt>;
    *           </ul>
    *
@@ -1231,10 +1435,29 @@ public class ParseNode implements Locatable
    */
   public final ArrayList xmlify (Element root)
   {
+    if (hasReducedXmlForm() && !_extension.xmlFormConsumed)
+      { // this node's XML form was built upon its reduction - hand over its
+	// elements the first time, and deep copies of them afterwards:
+	ArrayList reducedForm = _extension.reducedXmlForm;
+	ArrayList xmlForm = new ArrayList(reducedForm.size());
+	for (int i=0; i<reducedForm.size(); i++)
+	  xmlForm.add(_extension.xmlFormHandedOver
+		      ? ((Content)reducedForm.get(i)).clone()
+		      : reducedForm.get(i));
+	_extension.xmlFormHandedOver = true;
+	return xmlForm;
+      }
+
+    if (hasReducedXmlForm() && !hasChildren())
+      throw new IllegalStateException
+	("the XML form of "+this+" has been consumed by its parent's, and its children are gone");
+
     // create an empty xmlForm:
-    ArrayList xmlForm = new ArrayList(hasChildren()?_children.size():0);
+    ArrayList xmlForm = new ArrayList(hasChildren()?_children.length:0);
+
+    XmlInfo xmlInfo = xmlInfo();
 
-    if (_xmlInfo == null) // no annotation - default behavior:
+    if (xmlInfo == null) // no annotation - default behavior:
       if (isTerminal() && hasValue())
 	{ // this is a non-annotated value-carrying terminal:
 	  // create a new element for it:
@@ -1248,12 +1471,12 @@ public class ParseNode implements Locatable
 	  if (hasChildren())
 	    // this is an unannotated interior node - concatenate the XML
 	    // forms of all its consituents into xmlForm:
-	    for (Iterator i=_children.iterator(); i.hasNext();)
-	      xmlForm.addAll(((ParseNode)i.next()).xmlify(root));
+	    for (int i=0; i<_children.length; i++)
+	      xmlForm.addAll(_children[i].xmlify(root));
 	}
     else // follow annotation:
       { // this may be a non-terminal or a value-carrying terminal:
-	Element element = _xmlInfo.createXmlForm(this,root);
+	Element element = xmlInfo.createXmlForm(this,root);
 	xmlForm.add(element);
 
 // 	try
@@ -1268,6 +1491,14 @@ public class ParseNode implements Locatable
 // 	  }
       }
 
+    // the forms handed over by the children may have been altered while
+    // building this one (wrapped, or deep referenced), so their elements
+    // may no longer be handed over or copied:
+    if (hasChildren())
+      for (int i=0; i<_children.length; i++)
+	if (_children[i]._extension != null && _children[i]._extension.xmlFormHandedOver)
+	  _children[i]._extension.xmlFormConsumed = true;
+
     // return the (possibly empty) xmlForm:
     return xmlForm;
   }
@@ -1277,16 +1508,239 @@ public class ParseNode implements Locatable
   /* **************************************************************** */
 
   /**
-   * Two ParseNodes are considered equal iff they carry the same info.
+   * Two ParseNodes are considered equal iff they carry the same info
+   * (<i>i.e.</i>, iff their <tt>nodeInfo()</tt> strings are equal): the
+   * same symbol (or operator), the same value if they are leaves, and
+   * the same location if they are located. This is tested field by field,
+   * building no string unless both nodes have the same symbol and value
+   * and start on the same line of the same file, in which case their
+   * spans are compared as strings.
    */
   public final boolean equals (Object other)
     {
-      if (!(other instanceof ParseNode) || other == null)
+      if (this == other)
+        return true;
+
+      if (!(other instanceof ParseNode))
         return false;
 
       ParseNode that = (ParseNode)other;
 
-      return this.nodeInfo().equals(that.nodeInfo());
+      return this.hashCode() == that.hashCode()
+          && this.sameInfo(that)
+          && this.sameSpan(that);
+    }
+
+  /**
+   * Returns a hash code consistent with <tt>equals(Object)</tt>. It depends
+   * only on the symbol (or operator) and value of this node, and it is
+   * cached until one of them is set.
+   */
+  public final int hashCode ()
+    {
+      int hash = _hash;
+
+      if (hash == 0)
+        {
+          hash = infoHash();
+          _hash = hash == 0 ? 1 : hash;
+        }
+
+      return _hash;
+    }
+
+  /**
+   * The cached hash code of this node, or <tt>0</tt> if it must be computed.
+   */
+  private int _hash;
+
+  private final int infoHash ()
+    {
+      if (isOperator())
+        return _extension.operator.hashCode();
+
+      int hash = _symbol == null ? 0 : _symbol.name().hashCode();
+
+      if (isLeafNode())
+        {
+          if (_svalue != null)
+            hash = 31*hash + charsHash(_svalue);
+
+          if (!Double.isNaN(_nvalue))
+            hash = 31*hash + (_isInteger ? (int)_nvalue : Double.hashCode(_nvalue));
+        }
+
+      return hash;
+    }
+
+  /**
+   * Returns the hash code of the specified characters as computed by
+   * <tt>String.hashCode()</tt>, whatever the class of the specified
+   * sequence (whose own <tt>hashCode()</tt> may be another function of
+   * its characters, or not depend on them at all).
+   */
+  private static final int charsHash (CharSequence chars)
+    {
+      if (chars instanceof String)
+        return chars.hashCode();
+
+      int hash = 0;
+
+      // this is the same hash function as String.hashCode():
+      for (int i=0, n=chars.length(); i<n; i++)
+        hash = 31*hash + chars.charAt(i);
+
+      return hash;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff this node and the specified one have the same
+   * string form (see <tt>toString()</tt>), regardless of their locations.
+   */
+  private final boolean sameInfo (ParseNode that)
+    {
+      if (this.isOperator() || that.isOperator())
+        {
+          if (!(this.isOperator() && that.isOperator()))
+            return false;
+
+          ParserOperator op1 = this._extension.operator;
+          ParserOperator op2 = that._extension.operator;
+
+          return op1.equals(op2)
+              && op1.precedence() == op2.precedence()
+              && op1.associativity() == op2.associativity();
+        }
+
+      if (_symbol != that._symbol
+          && (_symbol == null || that._symbol == null || !_symbol.name().equals(that._symbol.name())))
+        return false;
+
+      if (!isLeafNode())
+        return true;
+
+      if (_svalue == null ? that._svalue != null : !that.svalueEquals(_svalue))
+        return false;
+
+      if (Double.isNaN(_nvalue) || Double.isNaN(that._nvalue))
+        return Double.isNaN(_nvalue) && Double.isNaN(that._nvalue);
+
+      if (_isInteger != that._isInteger)
+        return false;
+
+      return _isInteger ? (int)_nvalue == (int)that._nvalue
+                        : Double.compare(_nvalue,that._nvalue) == 0;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff this node and the specified one are both
+   * unlocated, or are located at the same span.
+   */
+  private final boolean sameSpan (ParseNode that)
+    {
+      if (this._span == that._span)
+        return true;
+
+      boolean located = this._span != null && this._span.isKnown();
+
+      if (located != (that._span != null && that._span.isKnown()))
+        return false;
+
+      if (!located)
+        return true;
+
+      Location start1 = this._span.start();
+      Location start2 = that._span.start();
+
+      if (start1 != start2
+          && (start1 == null || start2 == null
+              || start1.getLine() != start2.getLine()
+              || !sameFile(start1.getFile(),start2.getFile())))
+        return false;
+
+      return this._span.toString().equals(that._span.toString());
+    }
+
+  private static final boolean sameFile (String file1, String file2)
+    {
+      return file1 == null ? file2 == null : file1.equals(file2);
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the trees rooted in this node and in the
+   * specified one have the same structure: their roots carry the same
+   * information regardless of their locations (as tested by
+   * <tt>equals(Object)</tt>), and their children, if any, are pairwise
+   * equal trees. Thus, unlike <tt>equals(Object)</tt>, this compares
+   * whole subtrees, and equal trees parsed from different places are
+   * equal. This is done without recursion, so that the depth of the trees
+   * does not matter.
+   */
+  public final boolean deepEquals (ParseNode other)
+    {
+      if (other == null)
+        return false;
+
+      ArrayList stack = new ArrayList();
+      stack.add(this);
+      stack.add(other);
+
+      while (!stack.isEmpty())
+        {
+          ParseNode node2 = (ParseNode)stack.remove(stack.size()-1);
+          ParseNode node1 = (ParseNode)stack.remove(stack.size()-1);
+
+          if (node1 == node2)
+            continue;
+
+          if (node1.hashCode() != node2.hashCode() || !node1.sameInfo(node2))
+            return false;
+
+          int count = node1.numberOfChildren();
+
+          if (count != node2.numberOfChildren())
+            return false;
+
+          for (int i=count; i>0; i--)
+            {
+              stack.add(node1.child(i));
+              stack.add(node2.child(i));
+            }
+        }
+
+      return true;
+    }
+
+  /**
+   * Returns a hash code for the tree rooted in this node that is consistent
+   * with <tt>deepEquals(ParseNode)</tt>. It is not cached, since a tree may
+   * be modified (see <a href="ParseTreeKey.html"><tt>ParseTreeKey</tt></a>
+   * for using trees as hash keys).
+   */
+  public final int deepHashCode ()
+    {
+      int hash = 0;
+      ArrayList stack = new ArrayList();
+      stack.add(this);
+
+      while (!stack.isEmpty())
+        {
+          ParseNode node = (ParseNode)stack.remove(stack.size()-1);
+
+          if (node == null)
+            {
+              hash = 31*hash + 1;
+              continue;
+            }
+
+          int count = node.numberOfChildren();
+          hash = 31*(31*hash + node.hashCode()) + count;
+
+          for (int i=count; i>0; i--)
+            stack.add(node.child(i));
+        }
+
+      return hash;
     }
 
   /* **************************************************************** */
@@ -1299,7 +1753,7 @@ public class ParseNode implements Locatable
    */
   private String stringForm ()
     {
-      if (isOperator()) return _operator.toString();
+      if (isOperator()) return _extension.operator.toString();
 
       String s = (_symbol == null ? "'DYNAMIC'" : _symbol.toString());
 
@@ -1308,7 +1762,7 @@ public class ParseNode implements Locatable
           s += "(";
           if (_svalue!=null)
             {
-              s += _svalue;
+              s += svalue();
               if (!Double.isNaN(_nvalue)) s += ",";
             }
           if (!Double.isNaN(_nvalue))
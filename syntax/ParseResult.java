@@ -0,0 +1,78 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.util.List;
+import java.util.Collections;
+
+/**
+ * This is the class of the results of the parses performed by a <a
+ * href="ParseService.html"><tt>ParseService</tt></a>. It holds the parse
+ * tree (or rather, the node returned by <tt>GenericParser.currentNode()</tt>
+ * at the end of the parse), the errors reported during the parse, and -
+ * if the parse did not complete - the exception that stopped it.
+ *
+ * @see         ParseService
+ */
+
+public class ParseResult
+{
+  private final ParseNode tree;
+  private final List errors;
+  private final List warnings;
+  private final Throwable failure;
+
+  ParseResult (ParseNode tree, List errors, List warnings, Throwable failure)
+    {
+      this.tree = tree;
+      this.errors = Collections.unmodifiableList(errors);
+      this.warnings = Collections.unmodifiableList(warnings);
+      this.failure = failure;
+    }
+
+  /**
+   * Returns the result of the parse, or <tt>null</tt> if it did not complete.
+   */
+  public final ParseNode tree ()
+    {
+      return tree;
+    }
+
+  /**
+   * Returns the list of errors (<tt>hlt.language.util.Error</tt>s) reported
+   * during the parse.
+   */
+  public final List errors ()
+    {
+      return errors;
+    }
+
+  /**
+   * Returns the list of warnings and deprecation warnings (<tt>hlt.language.util.Error</tt>s)
+   * reported during the parse.
+   */
+  public final List warnings ()
+    {
+      return warnings;
+    }
+
+  /**
+   * Returns the exception that stopped the parse (<i>e.g.</i>, a
+   * <tt>FatalParseErrorException</tt> or an <tt>IOException</tt>), or
+   * <tt>null</tt> if it completed.
+   */
+  public final Throwable failure ()
+    {
+      return failure;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the parse completed and reported no error.
+   */
+  public final boolean isSuccessful ()
+    {
+      return failure == null && errors.isEmpty();
+    }
+}
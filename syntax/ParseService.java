@@ -0,0 +1,254 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This is the class of services performing independent parses concurrently.
+ * Each parse is submitted as a <a href="Tokenizer.html"><tt>Tokenizer</tt></a>
+ * reading the input to parse, and runs as a task of the service's executor
+ * with a parser leased from the service's <a href="ParserPool.html">
+ * <tt>ParserPool</tt></a>. Its outcome is a <a href="ParseResult.html">
+ * <tt>ParseResult</tt></a>, obtained through the <tt>Future</tt> returned
+ * upon submission.
+ * <p>
+ * At most <tt>maxParses</tt> parses are in progress at any time: submitting
+ * more blocks the caller until one completes (see <tt>submit(Tokenizer)</tt>),
+ * or fails immediately (see <tt>trySubmit(Tokenizer)</tt>). This provides
+ * back-pressure to the producer of inputs.
+ * <p>
+ * By default, tasks run on virtual threads when the Java runtime provides
+ * them, and otherwise on a pool of as many daemon platform threads as there
+ * are processors. Such a default executor is created by the service and
+ * belongs to it: it is shut down by <tt>close()</tt>, which should be called
+ * once the service is no longer needed. An executor given to the service's
+ * constructor belongs to the caller, who is responsible for shutting it
+ * down; it is left alone by <tt>close()</tt>.
+ *
+ * @see         ParserPool
+ * @see         ParseResult
+ */
+
+public class ParseService
+{
+  /**
+   * The pool of parsers used by this service.
+   */
+  private final ParserPool pool;
+
+  /**
+   * The executor running this service's parses.
+   */
+  private final Executor executor;
+
+  /**
+   * The executor created by this service, which shuts it down upon closing,
+   * or <tt>null</tt> if its executor was given by the caller.
+   */
+  private final ExecutorService ownExecutor;
+
+  /**
+   * The permits for parses in progress.
+   */
+  private final Semaphore permits;
+
+  /**
+   * Constructs a service running at most <tt>maxParses</tt> parses at a
+   * time with parsers created by the specified factory, on the default
+   * executor.
+   */
+  public ParseService (ParserFactory factory, int maxParses)
+    {
+      this(factory,maxParses,defaultExecutor(),true);
+    }
+
+  /**
+   * Constructs a service running at most <tt>maxParses</tt> parses at a
+   * time with parsers created by the specified factory, on the specified
+   * executor, which is not shut down by <tt>close()</tt>.
+   */
+  public ParseService (ParserFactory factory, int maxParses, Executor executor)
+    {
+      this(factory,maxParses,executor,false);
+    }
+
+  private ParseService (ParserFactory factory, int maxParses, Executor executor,
+                        boolean ownsExecutor)
+    {
+      pool = new ParserPool(factory,maxParses);
+      permits = new Semaphore(maxParses);
+      this.executor = executor;
+      ownExecutor = ownsExecutor ? (ExecutorService)executor : null;
+    }
+
+  /**
+   * Returns an executor running each task on a new virtual thread if the
+   * Java runtime supports them, or on a fixed pool of as many daemon threads
+   * as there are processors otherwise (so that it never prevents the Java
+   * runtime from exiting). It is up to the caller to shut it down.
+   */
+  public static ExecutorService defaultExecutor ()
+    {
+      try
+        {
+          return (ExecutorService)Executors.class
+            .getMethod("newVirtualThreadPerTaskExecutor")
+            .invoke(null);
+        }
+      catch (Exception e)
+        {
+          return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                                              DAEMON_THREADS);
+        }
+    }
+
+  /**
+   * The factory of the daemon threads of the default executor.
+   */
+  private static final ThreadFactory DAEMON_THREADS = new ThreadFactory()
+    {
+      private final ThreadFactory threads = Executors.defaultThreadFactory();
+
+      public Thread newThread (Runnable task)
+        {
+          Thread thread = threads.newThread(task);
+          thread.setDaemon(true);
+          return thread;
+        }
+    };
+
+  /**
+   * Closes this service: if its executor was created by this service, it is
+   * shut down, so that it accepts no more parses and its threads end once
+   * the parses in progress are completed. Otherwise, this does nothing.
+   */
+  public final void close ()
+    {
+      if (ownExecutor != null)
+        ownExecutor.shutdown();
+    }
+
+  /**
+   * Returns the parser pool of this service.
+   */
+  public final ParserPool pool ()
+    {
+      return pool;
+    }
+
+  /**
+   * Submits a parse of the input read by the specified tokenizer building
+   * no parse tree, waiting if need be until fewer than <tt>maxParses</tt>
+   * parses are in progress. Returns a <tt>Future</tt> of the parse's
+   * <tt>ParseResult</tt>.
+   */
+  public final Future submit (Tokenizer input) throws InterruptedException
+    {
+      return submit(input,GenericParser.NO_TREE);
+    }
+
+  /**
+   * Same as <tt>submit(Tokenizer)</tt>, building the specified type of
+   * parse tree (see <tt>GenericParser.setTreeType(int)</tt>).
+   */
+  public final Future submit (Tokenizer input, int treeType) throws InterruptedException
+    {
+      permits.acquire();
+      return execute(input,treeType);
+    }
+
+  /**
+   * Same as <tt>submit(Tokenizer)</tt>, except that this returns <tt>null</tt>
+   * rather than waiting if <tt>maxParses</tt> parses are in progress.
+   */
+  public final Future trySubmit (Tokenizer input)
+    {
+      return trySubmit(input,GenericParser.NO_TREE);
+    }
+
+  /**
+   * Same as <tt>submit(Tokenizer,int)</tt>, except that this returns
+   * <tt>null</tt> rather than waiting if <tt>maxParses</tt> parses are
+   * in progress.
+   */
+  public final Future trySubmit (Tokenizer input, int treeType)
+    {
+      return permits.tryAcquire() ? execute(input,treeType) : null;
+    }
+
+  /**
+   * Runs a parse on this service's executor, a permit having been acquired.
+   */
+  private final Future execute (final Tokenizer input, final int treeType)
+    {
+      FutureTask task = new FutureTask(new Callable()
+        {
+          public Object call ()
+            {
+              try
+                {
+                  return parse(input,treeType);
+                }
+              finally
+                {
+                  permits.release();
+                }
+            }
+        });
+
+      try
+        {
+          executor.execute(task);
+        }
+      catch (RuntimeException e)
+        {
+          permits.release();
+          throw e;
+        }
+
+      return task;
+    }
+
+  /**
+   * Parses the input read by the specified tokenizer with a parser leased
+   * from this service's pool, and returns the result.
+   */
+  final ParseResult parse (Tokenizer input, int treeType)
+    {
+      GenericParser parser = pool.lease();
+      RecordingErrorManager errors = new RecordingErrorManager();
+      ErrorManager errorManager = parser.errorManager();
+      ParseNode tree = null;
+      Throwable failure = null;
+
+      try
+        {
+          parser.setErrorManager(errors);
+          parser.setTokenizer(input);
+          parser.setTreeType(treeType);
+          parser.parse();
+          tree = parser.currentNode();
+        }
+      catch (Exception e)
+        {
+          failure = e;
+        }
+      finally
+        {
+          parser.setErrorManager(errorManager);
+          pool.release(parser);
+        }
+
+      return new ParseResult(tree,errors.errors,errors.warnings,failure);
+    }
+}
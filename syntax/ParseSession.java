@@ -0,0 +1,224 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * This is the class of <i>push-mode</i> parses: rather than having the
+ * parser pull tokens from a <a href="Tokenizer.html"><tt>Tokenizer</tt></a>
+ * until the whole input is consumed, tokens are offered one at a time by
+ * the caller, as they become available (<i>e.g.</i>, from non-blocking I/O
+ * driven by an event loop). The parser's stack stays suspended between
+ * calls, and no thread is blocked waiting for input.
+ * <p>
+ * A session works with any generated parser (static or dynamic). While
+ * the session lasts, the parser's tokenizer is replaced by the session's.
+ * Typical use is:
+ * <pre>
+ * ParseSession session = new ParseSession(parser);
+ * ...
+ * switch (session.offer(token))        // for each token as it arrives
+ *   {
+ *   case ParseSession.NEED_MORE: ...   // wait for the next token
+ *   case ParseSession.ACCEPTED:  ...   // the input has been parsed
+ *   case ParseSession.ERROR:     ...   // the parse has been aborted
+ *   }
+ * ...
+ * session.close();                     // offers the end of input token
+ * </pre>
+ *
+ * @see         GenericParser
+ */
+
+public class ParseSession
+{
+  /**
+   * The status of a session whose parser needs more tokens.
+   */
+  public static final int NEED_MORE = 0;
+
+  /**
+   * The status of a session whose input has been accepted.
+   */
+  public static final int ACCEPTED  = 1;
+
+  /**
+   * The status of a session whose parse has been aborted upon an
+   * unrecoverable error.
+   */
+  public static final int ERROR     = 2;
+
+  /**
+   * The parser driven by this session.
+   */
+  private final GenericParser parser;
+
+  /**
+   * The tokenizer feeding the parser with the offered tokens.
+   */
+  private final PushTokenizer tokenizer = new PushTokenizer();
+
+  /**
+   * The current status of this session.
+   */
+  private int status = NEED_MORE;
+
+  /**
+   * The exception that aborted the parse, if any.
+   */
+  private FatalParseErrorException failure;
+
+  /**
+   * Constructs a session driving the specified parser, and starts its parse.
+   * No token is read until one is offered.
+   */
+  public ParseSession (GenericParser parser)
+    {
+      this.parser = parser;
+      parser.setTokenizer(tokenizer);
+      parser.startParse();
+    }
+
+  /**
+   * Returns the parser driven by this session.
+   */
+  public final GenericParser parser ()
+    {
+      return parser;
+    }
+
+  /**
+   * Returns the current status of this session (one of <tt>NEED_MORE</tt>,
+   * <tt>ACCEPTED</tt>, or <tt>ERROR</tt>).
+   */
+  public final int status ()
+    {
+      return status;
+    }
+
+  /**
+   * Returns the exception that aborted the parse if this session's status
+   * is <tt>ERROR</tt>, and <tt>null</tt> otherwise.
+   */
+  public final FatalParseErrorException failure ()
+    {
+      return failure;
+    }
+
+  /**
+   * Offers the specified token to the parser and runs it as far as it can
+   * go without another token. Returns the resulting status of this session.
+   */
+  public final int offer (ParseNode token) throws IOException
+    {
+      if (status != NEED_MORE)
+        throw new IllegalStateException("parse session is over");
+
+      tokenizer.token = token;
+
+      try
+        {
+          parser.continueParse();
+          status = ACCEPTED;
+        }
+      catch (NeedInput signal)
+        {
+          // the parser has consumed the token and is suspended
+        }
+      catch (FatalParseErrorException e)
+        {
+          failure = e;
+          status = ERROR;
+        }
+
+      return status;
+    }
+
+  /**
+   * Offers the end of input token to the parser, and returns the resulting
+   * status of this session. If the parser still needs more tokens (which
+   * cannot happen with a well-formed grammar), the status is <tt>ERROR</tt>.
+   */
+  public final int close () throws IOException
+    {
+      if (status == NEED_MORE && offer(parser.tables.eoi()) == NEED_MORE)
+        status = ERROR;
+
+      return status;
+    }
+
+  /**
+   * This is the exception thrown by a session's tokenizer when it has no
+   * token to give. It is preallocated and carries no stack trace, since it
+   * is used for control only.
+   */
+  private static final class NeedInput extends RuntimeException
+    {
+      NeedInput ()
+        {
+          super("no more input",null,false,false);
+        }
+    }
+
+  private static final NeedInput NEED_INPUT = new NeedInput();
+
+  /**
+   * This is the tokenizer through which a session feeds its parser with the
+   * offered tokens. Since these tokens are not read from a reader, setting
+   * its reader only resets its pending input: the offered token not yet read
+   * by the parser (if any) is dropped and the line number is reset to 0. The
+   * reader itself is never read, but it is kept as the tokenizer's reader,
+   * so that it may identify the session's input (<i>e.g.</i>, in error
+   * messages).
+   */
+  private static final class PushTokenizer implements Tokenizer
+    {
+      /**
+       * The offered token not yet read by the parser, if any.
+       */
+      ParseNode token;
+
+      /**
+       * The line number of the latest token read.
+       */
+      int lineNumber = 0;
+
+      /**
+       * The reader identifying the session's input, if any.
+       */
+      Reader reader;
+
+      public final ParseNode nextToken ()
+        {
+          if (token == null)
+            throw NEED_INPUT;
+
+          ParseNode next = token;
+          token = null;
+          if (next.isLocated())
+            lineNumber = next.getLineNumber();
+          return next;
+        }
+
+      public final void setReader (Reader rd)
+        {
+          reader = rd;
+          token = null;
+          lineNumber = 0;
+        }
+
+      public final Reader getReader ()
+        {
+          return reader;
+        }
+
+      public final int lineNumber ()
+        {
+          return lineNumber;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+/**
+ * This is the interface of the primitive tables used at parse time to
+ * store the <i>action</i> and <i>goto</i> tables of the parsing automaton.
+ * Such a table maps a pair of integers <tt>(row,column)</tt> (<i>i.e.</i>,
+ * a state's index and a symbol's index) to an integer (<i>i.e.</i>, an
+ * action's or a state's index). Its entries are kept either in heap arrays
+ * (see <a href="CompressedTable.html"><tt>CompressedTable</tt></a>) or in
+ * a memory-mapped binary tables resource (see <a href="MappedCompressedTable.html">
+ * <tt>MappedCompressedTable</tt></a>).
+ *
+ * @see         ParserTables
+ */
+
+public interface ParseTable
+{
+  /**
+   * Returns the number of rows of this table.
+   */
+  public int rowCount ();
+
+  /**
+   * Returns the size of the overlaid value array of this table.
+   */
+  public int size ();
+
+  /**
+   * Returns <tt>true</tt> iff this table has an entry at the specified
+   * row and column.
+   */
+  public boolean contains (int row, int column);
+
+  /**
+   * Returns the entry at the specified row and column, or <tt>absent</tt>
+   * if there is none.
+   */
+  public int get (int row, int column, int absent);
+}
@@ -0,0 +1,67 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+/**
+ * This is the class of wrappers making parse trees usable as keys of hash
+ * tables, or elements of hash sets, for which two trees are the same iff
+ * they have the same structure regardless of their locations (see
+ * <tt>ParseNode.deepEquals(ParseNode)</tt>). This is useful, <i>e.g.</i>,
+ * for sharing or counting the equal subtrees of a tree. The tree's hash
+ * code is computed once when the key is created, so the tree must not be
+ * modified while its key is in use.
+ *
+ * @see         ParseNode
+ */
+
+public final class ParseTreeKey
+{
+  private final ParseNode tree;
+  private final int hash;
+
+  /**
+   * Constructs a key for the tree rooted in the specified node.
+   */
+  public ParseTreeKey (ParseNode tree)
+    {
+      this.tree = tree;
+      hash = tree.deepHashCode();
+    }
+
+  /**
+   * Returns the tree of this key.
+   */
+  public final ParseNode tree ()
+    {
+      return tree;
+    }
+
+  public final int hashCode ()
+    {
+      return hash;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the specified object is a key for a tree
+   * having the same structure as this key's.
+   */
+  public final boolean equals (Object other)
+    {
+      if (this == other)
+        return true;
+
+      if (!(other instanceof ParseTreeKey))
+        return false;
+
+      ParseTreeKey that = (ParseTreeKey)other;
+
+      return hash == that.hash && tree.deepEquals(that.tree);
+    }
+
+  public final String toString ()
+    {
+      return tree.toString();
+    }
+}
@@ -19,22 +19,22 @@ public class ParserAction extends ArrayIndexed
   public int info;  // If REDUCE, the rule's index; if SHIFT the next state's;
                     // DYNAMIC/CHOICE: the current state's dynamic actions array index.
 
-  public ParserAction (int type)
+  public ParserAction (ParserTables tables, int type)
     {
-      super(GenericParser.actions);
+      super(tables.actions);
       this.type = type;
     }
 
-  public ParserAction (int type, int info)
+  public ParserAction (ParserTables tables, int type, int info)
     {
-      super(GenericParser.actions);
+      super(tables.actions);
       this.type = type;
       this.info = info;
     }
 
-  public ParserAction (int type, int info, int index)
+  public ParserAction (ParserTables tables, int type, int info, int index)
     {
-      super(GenericParser.actions,index);
+      super(tables.actions,index);
       this.type = type;
       this.info = info;
     }
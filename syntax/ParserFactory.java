@@ -0,0 +1,22 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+/**
+ * This is the interface of objects creating new parser instances for a <a
+ * href="ParserPool.html"><tt>ParserPool</tt></a>. Typically, it is implemented
+ * by invoking a generated parser class's constructor.
+ *
+ * @see         ParserPool
+ * @see         ParseService
+ */
+
+public interface ParserFactory
+{
+  /**
+   * Returns a new parser instance.
+   */
+  public GenericParser newParser ();
+}
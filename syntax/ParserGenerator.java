@@ -99,6 +99,11 @@ public class ParserGenerator
                         + Options.getSeparator()
                         + parserFile;
 
+  String tablesFile     = parserPrefix+".tables";
+  String fullTablesFile = parserDestination
+                        + Options.getSeparator()
+                        + tablesFile;
+
   /**
    * The default action.
    */
@@ -124,6 +129,12 @@ public class ParserGenerator
    */
   int initContinuationCount;
 
+  /**
+   * Local declarations starting each parser table initialization method
+   * and its continuations (or <tt>null</tt> if none).
+   */
+  String initLocals = null;
+
   /**
    * Test and (maybe) generate a continuation for a method initializing
    * a parser table at index <tt>i</tt>.
@@ -138,6 +149,8 @@ public class ParserGenerator
           pl();
           pl("  static void "+initContinuation+"_"+initContinuationCount+" ()");
           pl("    {");
+          if (initLocals != null)
+            pl(initLocals);
         }
     }
 
@@ -252,6 +265,9 @@ public class ParserGenerator
       reportProgress_2();
       
       compressTables();
+      packTables();
+      findDefaultActions();
+      bypassUnitRules();
 
       reportProgress_3();      
     }
@@ -311,6 +327,213 @@ public class ParserGenerator
       reportProgress_5();      
     }
 
+  /** The packed action table. */
+  CompressedTable packedActionTable;
+  /** The packed goto table. */
+  CompressedTable packedGotoTable;
+
+  /**
+   * Packs the distinct action and goto tables left by <tt>compressTables()</tt>
+   * into the primitive row-displaced tables used at parse time (see <a
+   * href="CompressedTable.html"><tt>CompressedTable</tt></a>). States
+   * sharing the same action (resp., goto) table share the same row.
+   */
+  final void packTables ()
+    {
+      int[] ac_map = new int[grammar.scount];
+      int[] gt_map = new int[grammar.scount];
+
+      for (int i=0; i<grammar.scount; i++)
+        {
+          State state = (State)grammar.states.get(i);
+          ac_map[i] = state.ac_index;
+          gt_map[i] = state.gt_index;
+        }
+
+      int[][] ac_rows = new int[ac_count][];
+      for (int i=0; i<ac_count; i++)
+        {
+          Map m = (Map)ac_tables.get(i);
+          int[] row = ac_rows[i] = new int[2*m.size()];
+          int j = 0;
+          for (Iterator e = m.keySet().iterator(); e.hasNext();)
+            {
+              Terminal t = (Terminal)e.next();
+              row[j++] = t.index();
+              row[j++] = ((Action)m.get(t)).index();
+            }
+        }
+
+      int[][] gt_rows = new int[gt_count][];
+      for (int i=0; i<gt_count; i++)
+        {
+          Map m = (Map)gt_tables.get(i);
+          int[] row = gt_rows[i] = new int[2*m.size()];
+          int j = 0;
+          for (Iterator e = m.keySet().iterator(); e.hasNext();)
+            {
+              NonTerminal n = (NonTerminal)e.next();
+              row[j++] = n.index();
+              row[j++] = ((State)m.get(n)).index();
+            }
+        }
+
+      packedActionTable = CompressedTable.pack(ac_rows,ac_map,grammar.tcount);
+      packedGotoTable = CompressedTable.pack(gt_rows,gt_map,grammar.ncount);
+
+      if (verbosity > Verbose.NORMAL)
+        {
+          out.println("***\taction table packed into "+packedActionTable.size()+" entries");
+          out.println("***\tgoto table packed into "+packedGotoTable.size()+" entries");
+        }
+    }
+
+  /**
+   * The index of the default action of each state, or <tt>0</tt> (the
+   * index of the canonical error action) if it has none.
+   */
+  int[] defaultActions;
+
+  /**
+   * Computes the default action of each state. A state has a default action
+   * when all the entries of its action table are the same <tt>REDUCE</tt>
+   * action. Such an action may be performed at parse time without reading
+   * the lookahead token. This only delays the detection of a syntax error
+   * by some reductions, but never beyond the next shift or the acceptance
+   * of the input: an <tt>ACCEPT</tt> action is never a default action, so
+   * that the end of input is always checked. A state is excluded if its
+   * table has an explicit <tt>ERROR</tt> entry (as left by a non-associative
+   * operator), or, for a dynamic grammar, if one of its lookaheads is an
+   * operator (as this lookahead is needed to check for non-associative
+   * operators).
+   */
+  final void findDefaultActions ()
+    {
+      defaultActions = new int[grammar.scount];
+      int count = 0;
+
+      for (int i=0; i<grammar.scount; i++)
+        {
+          Map m = ((State)grammar.states.get(i)).actionTable;
+          Action action = null;
+
+          for (Iterator e = m.keySet().iterator(); e.hasNext();)
+            {
+              Terminal t = (Terminal)e.next();
+              Action a = (Action)m.get(t);
+
+              if (a.type != Action.REDUCE
+                  || action != null && a.index() != action.index()
+                  || grammar.isDynamic && t.isOperator())
+                {
+                  action = null;
+                  break;
+                }
+
+              action = a;
+            }
+
+          if (action != null)
+            {
+              defaultActions[i] = action.index();
+              count++;
+            }
+        }
+
+      if (verbosity > Verbose.NORMAL)
+        out.println("***	"+count+" states with a default action");
+    }
+
+  /** The packed goto table bypassing unit rules, or <tt>null</tt> if none. */
+  CompressedTable packedUnitGotoTable;
+
+  /**
+   * Builds the goto table used at parse time instead of the normal one when
+   * no parse tree is built. In this table, a goto to a state whose default
+   * action reduces a unit rule <tt>A -> B</tt> is replaced by the goto on
+   * <tt>A</tt> from the same state (and so on, transitively). Thus, chains
+   * of unit reductions such as <tt>Expr -> Term -> Factor</tt> are skipped
+   * altogether, and the node of the lowermost symbol stands for the others.
+   * This is only done for a rule having the default semantic action, no XML
+   * information, and a head having no node class and not introduced by the
+   * generator, and for a state with no goto, no dynamic action, and not
+   * handling the <tt>error</tt> token. It is not done for a dynamic grammar,
+   * nor if <tt>Options.getKeepUnitRules()</tt> is set.
+   */
+  final void bypassUnitRules ()
+    {
+      if (Options.getKeepUnitRules() || grammar.isDynamic)
+        return;
+
+      // the unit rule reduced by each state, or null:
+      Rule[] unitRules = new Rule[grammar.scount];
+      int count = 0;
+
+      for (int i=0; i<grammar.scount; i++)
+        {
+          if (defaultActions[i] == 0)
+            continue;
+
+          Action a = (Action)actions.get(defaultActions[i]);
+          if (a.type != Action.REDUCE)
+            continue;
+
+          State s = (State)grammar.states.get(i);
+          Rule r = grammar.getRule(a.info);
+          if (r.sequence.length == 2
+              && r.sequence[1] instanceof NonTerminal
+              && r.action.equals(Grammar.DEFAULT_ACTION)
+              && !r.isOperator()
+              && r.xmlInfo() == null
+              && r.head() != Grammar.START && r.head() != Grammar.ROOTS
+              && r.head().nodeType == null
+              && s.gotoTable.size() == 0
+              && s.dynamicActions.isEmpty()
+              && s.actionTable.get(Grammar.ERROR) == null)
+            {
+              unitRules[i] = r;
+              count++;
+            }
+        }
+
+      if (count == 0)
+        return;
+
+      int[][] gt_rows = new int[gt_count][];
+      for (int i=0; i<gt_count; i++)
+        {
+          Map m = (Map)gt_tables.get(i);
+          int[] row = gt_rows[i] = new int[2*m.size()];
+          int j = 0;
+          for (Iterator e = m.keySet().iterator(); e.hasNext();)
+            {
+              NonTerminal n = (NonTerminal)e.next();
+              State target = (State)m.get(n);
+              // follow the chain of unit reductions (a cycle of unit
+              // rules would make the grammar ambiguous, but be safe):
+              for (int steps=0; steps<grammar.ncount && target != null
+                                && unitRules[target.index()] != null; steps++)
+                {
+                  State next = (State)m.get(unitRules[target.index()].head());
+                  if (next == null)
+                    break;
+                  target = next;
+                }
+              row[j++] = n.index();
+              row[j++] = target.index();
+            }
+        }
+
+      int[] gt_map = new int[grammar.scount];
+      for (int i=0; i<grammar.scount; i++)
+        gt_map[i] = ((State)grammar.states.get(i)).gt_index;
+
+      packedUnitGotoTable = CompressedTable.pack(gt_rows,gt_map,grammar.ncount);
+
+      if (verbosity > Verbose.NORMAL)
+        out.println("***	"+count+" unit reduction states bypassed when building no tree");
+    }
+
   /**
    * The set of actions.
    */
@@ -794,487 +1017,1084 @@ public class ParserGenerator
       pl();
     }
   
-  final void writePublicClasses () throws IOException
+  /**
+   * Returns <tt>true</tt> iff the specified terminal name may be used to
+   * name its code's constant (<i>i.e.</i>, <tt>T_</tt><i>name</i>). This
+   * excludes the terminals introduced by the generator and those whose
+   * name is not a Java identifier (<i>e.g.</i>, punctuation literals).
+   */
+  final boolean isCodeName (String name)
     {
-      for (Iterator k = grammar.publicClasses.keySet().iterator(); k.hasNext();)
-        {
-          String className = (String)k.next();
-          String classDef  = grammar.publicClasses.get(className).toString();
+      if (name.length() == 0 || name.charAt(0) == '$')
+        return false;
 
-          setOutput(parserDestination + Options.getSeparator() + className + ".java");
-          writePreamble();
-          pl(classDef);
-          p_out.close();
-        }
-    }
+      for (int i=0; i<name.length(); i++)
+        if (!Character.isJavaIdentifierPart(name.charAt(i)))
+          return false;
 
-  String usefile;
+      return true;
+    }
 
-  final void dumpCode (ArrayList code, String banner) throws IOException
+  /**
+   * Writes the static methods initializing the parser's tables by code.
+   */
+  final void writeTableInitialization () throws IOException
     {
-      if (!code.isEmpty())
-        {
-          pl(banner);
+      Terminal t;
+      Rule r;
+      Action a;
+      State s;
 
-          for (Iterator e = code.iterator(); e.hasNext();)
-            {
-              Object element = e.next();
+      pl("  /* **************** */");
+      pl("  /* TERMINAL SYMBOLS */");
+      pl("  /* **************** */");
+      pl();
+      
+      initContinuation = "initializeTerminals";
+      initContinuationCount = 0;
 
-              if (element instanceof String)
-                { usefile = (String)element;
-                  try
-                    {
-                      BufferedReader rd = new BufferedReader(new FileReader(usefile));
-                      reportProgress_6();
-                      pl("\n  /* START OF CONTENTS OF FILE: "+usefile+" */\n");
-                      for (int c=rd.read(); c!=-1; c=rd.read()) p(c);
-                      rd.close();
-                      reportProgress_7();
-                      pl("  /* END OF CONTENTS OF FILE: "+usefile+" */\n");
-                    }
-                  catch (FileNotFoundException nofile)
-                    {
-                      Grammar.warning("Cannot include file: "
-                                      +usefile+" (not found!)");
-                    }
-                  catch (IOException io)
-                    {
-                      Grammar.warning("Something wrong happened while reading: "
-                                      +usefile+": "+io);
-                    }
-                  continue;
-                }
+      initLocals = "      ParserTerminal[] terminals = TABLES.terminals;\n";
 
-              pl(element.toString());
-              pl();
-            }
+      pl("  static void initializeTerminals ()");
+      pl("    {");
+      pl(initLocals);
+
+      for (int i=0; i<grammar.tcount; i++)
+        {
+          testInitContinuation(i);
+          t = grammar.getTerminal(i);
+          pl("      TABLES.newTerminal("+i+",\""+Misc.quotify(t.name)+"\","
+                                 +t.precedence+","+t.associativity+");");
+          if (t.xmlInfo() != null)
+	    t.xmlInfo().generateTerminalXmlInfo(this,i);
         }
-    }
+      pl("    }");
 
-  final void writeParser ()
-    {
-      if (Options.getNoParser())
-	return;
+      pl();
+      pl("  /* ******************** */");
+      pl("  /* NON-TERMINAL SYMBOLS */");
+      pl("  /* ******************** */");
+      pl();
 
-      reportProgress_8();
+      initContinuation = "initializeNonTerminals";
+      initContinuationCount = 0;
 
-      Terminal t;
-      NonTerminal n;
-      Rule r;
-      Action a;
-      Map m;
-      State s;
+      initLocals = null;
 
-      String superClass = (grammar.isDynamic ? "Dynamic" : "Static");
-      
-      try
+      pl("  static void initializeNonTerminals ()");
+      pl("    {");
+
+      for (int i=0; i<grammar.ncount; i++)
         {
-          setOutput(fullParserFile);
+          testInitContinuation(i);
+          pl("      TABLES.newNonTerminal("+i+",\""
+	     +Misc.quotify(grammar.getNonTerminal(i).name)+"\");");
+        }
+      pl("    }");
 
-          writePreamble();
-          
-          pl();
-          pl("/* ************ */");
-          pl("/* PARSER CLASS */");
-          pl("/* ************ */");
-          pl();
+      pl();
+      pl("  /* **************** */");
+      pl("  /* PRODUCTION RULES */");
+      pl("  /* **************** */");
+      pl();
 
-          pl(grammar.accessTag+"class "+parserPrefix
-             +" extends "+superClass+"Parser\n{");
+      initContinuation = "initializeRules";
+      initContinuationCount = 0;
 
-          pl("  /* ************************ */");
-          pl("  /* PARSER CLASS CONSTRUCTOR */");
-          pl("  /* ************************ */");
-          pl();
+      initLocals = "      ParserRule[] rules = TABLES.rules;\n";
 
-          pl("  public "+parserPrefix+" (Tokenizer t)\n    {\n      input = t;");
-	  if (grammar.xmlroot() != null)
-	    pl("      xmlroot = \""+grammar.xmlroot()+"\";");
-	  if (grammar.xmlRootNSPrefix() != "")
-	    pl("      xmlRootNSPrefix = \""+grammar.xmlRootNSPrefix()+"\";");
-	  if (!grammar.namespaces().isEmpty())
-	    {
-	      pl("      String[] ns = "
-		 +Misc.arrayToString(grammar.namespaces().toStringArray(),"{",",","}")
-		 +";");
-	      pl("      namespaces = ns;");
-	    }
+      pl("  static void initializeRules ()");
+      pl("    {");
+      pl(initLocals);
 
-	  if (grammar.isDynamic)
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          testInitContinuation(i);
+          r = grammar.getRule(i);
+          if (r.isOperator())
+            pl("      TABLES.newRule("+i+","+r.head().index()+","+
+               +(r.sequence.length-1)+","+r.tagPosition+");");
+          else
 	    {
-	      pl("      choiceStack = new FiniteStack("+Options.getChoiceHistory()+");");
-	      pl("      trailStack = new FiniteStack("+Options.getTrailHistory()+");");
-	      pl("      resolveRRsWithPrecedence = "+Options.resolveRRsWithPrecedence()+";");
+	      pl("      TABLES.newRule("+i+","+r.head().index()+","+
+	         +(r.sequence.length-1)+","
+	         +r.precedence()+","+r.associativity()+");");
+	      if (r.xmlInfo() != null)
+	        r.xmlInfo().generateRuleXmlInfo(this,i);
 	    }
+        }
+      pl("    }");
 
-          if (grammar.admitsOperators())
-            {
-              pl();
-              pl("      /* **************** */");
-              pl("      /* OPERATOR SYMBOLS */");
-              pl("      /* **************** */");
-              pl();
+      pl();
+      pl("  /* ************** */");
+      pl("  /* PARSER ACTIONS */");
+      pl("  /* ************** */");
+      pl();
 
-              pl("      operators = new ArrayList("
-                 +grammar.operators.size()
-                 +");\n");
+      initContinuation = "initializeParserActions";
+      initContinuationCount = 0;
 
-              for (int i=0; i<grammar.ocount; i++)
-                {
-                  Operator o = grammar.getOperator(i);
-                  pl("      newOperator(\""+Misc.quotify(o.name)+"\","+o.category.index()+","
-                     +o.precedence+","+o.associativity+","+o.fixity+");");
-                }
-            }
-// 	  else
-// 	    pl("      admitsOperators = false;");
-	  
-          pl("    }\n");
+      initLocals = null;
 
-          dumpCode(grammar.parserDeclarations,
-                   "  /* ************************* */\n"+
-                   "  /* PARSER CLASS DECLARATIONS */\n"+
-                   "  /* ************************* */");
+      pl("  static void initializeParserActions ()");
+      pl("    {");
 
-          pl("  /* ********************** */");
-          pl("  /* STATIC INITIALIZATIONS */");
-          pl("  /* ********************** */");
-          pl();
-          pl("  static");
-          pl("    {");
-          pl("      initializeTerminals();");
-          pl("      initializeNonTerminals();");
-          pl("      initializeRules();");
-          pl("      initializeParserActions();");
-          pl("      initializeParserStates();");
-          pl("      initializeActionTables();");
-          pl("      initializeGotoTables();");
-          pl("      initializeStateTables();");
-          pl("    }\n");
+      for (int i=0; i<acount; i++)
+        {
+          testInitContinuation(i);
+          a = (Action)actions.get(i);
+          pl("      TABLES.newAction("+i+","+a.type+","+a.info+");");
+        }
+      pl("    }");
 
-          pl("  /* ********************* */");
-          pl("  /* PARTIAL PARSE METHODS */");
-          pl("  /* ********************* */");
-          pl();
+      pl();
+      pl("  /* ************* */");
+      pl("  /* PARSER STATES */");
+      pl("  /* ************* */");
+      pl();
 
-          for (Iterator e=grammar.roots.keySet().iterator(); e.hasNext();)
-            {
-              NonTerminal root = (NonTerminal)e.next();
-              Terminal token = (Terminal)grammar.roots.get(root);
+      pl("  static void initializeParserStates ()");
+      pl("    {");
+      pl("      for (int i=0; i<"+grammar.scount+"; i++) TABLES.newState(i);");
 
-              String rootName = Misc.capitalize(root.name());
-              String tokenName = token.name().toUpperCase();
+      initContinuation = "initializeParserStates";
+      initContinuationCount = 0;
 
-              pl("  final static ParseNode "+tokenName+
-                 " = new ParseNode(terminals["+token.index()+"]);");
-              pl();
+      int defaults = 0;
+      for (int i=0; i<grammar.scount; i++)
+        if (defaultActions[i] != 0)
+          {
+            testInitContinuation(++defaults);
+            pl("      TABLES.setDefaultAction("+i+","+defaultActions[i]+");");
+          }
+      pl("    }");
 
-              pl("  public final void parse"+rootName+" (String s) throws IOException");
-              pl("    {");
-              pl("      parse"+rootName+"(new StringReader(s));");
-              pl("    }");
-              pl();
+      pl();
+      pl("  /* ************* */");
+      pl("  /* ACTION TABLES */");
+      pl("  /* ************* */");
+      pl();
 
-              pl("  public final void parse"+rootName+" (Reader r) throws IOException");
-              pl("    {");
-              pl("      input.setReader(r);");
-              pl("      errorManager().recoverFromErrors(false);");
-              pl("      setSwitchToken("+tokenName+");");
-              pl("      parse();");
-              pl("    }");
-              pl();
-            }
+      pl("  static void initializeActionTables ()");
+      pl("    {");
+      writeCompressedTable("TABLES.setActionTable",packedActionTable);
+      pl("    }\n");
 
-          pl("  /* **************** */");
-          pl("  /* SEMANTIC ACTIONS */");
-          pl("  /* **************** */");
-          pl();
+      pl("  /* *********** */");
+      pl("  /* GOTO TABLES */");
+      pl("  /* *********** */");
+      pl();
 
-          pl("  protected ParseNode semanticAction(ParserRule $rule$) throws IOException\n    {");
+      pl("  static void initializeGotoTables ()");
+      pl("    {");
+      writeCompressedTable("TABLES.setGotoTable",packedGotoTable);
+      if (packedUnitGotoTable != null)
+        writeCompressedTable("TABLES.setUnitGotoTable",packedUnitGotoTable);
+      pl("    }\n");
 
-          pl("      ParseNode $head$ = new ParseNode($rule$.head);\n");
+      pl("  /* ************ */");
+      pl("  /* STATE TABLES */");
+      pl("  /* ************ */");
+      pl();
+
+      initContinuation = "initializeStateTables";
+      initContinuationCount = 0;
 
-          ArrayList emptyCases = new ArrayList();
+      pl("  static void initializeStateTables ()");
+      pl("    {");
 
-          pl("      switch($rule$.index())\n        {");
-          for (int i=0; i<grammar.rcount; i++)
+      int lines = 0;
+      for (int i=0; i<grammar.scount; i++)
+        {
+          s = (State)grammar.states.get(i);
+          if (s.dynamicActions.size() > 0)
             {
-              r = grammar.getRule(i);
-              if (r.action.equals(Grammar.EMPTY_ACTION))
-                emptyCases.add(Integer.valueOf(i));
-              else
-                if (!r.action.equals(Grammar.DEFAULT_ACTION))
-                  pl("          case "+i+":\n            "+
-                     // NB: each semantic rule has its own lexical scope:
-                     "{\n            "+
-                     r.action.trim()+"\n            break;"+
-                     "\n            }");
+              testInitContinuation(lines);
+              pl("//    Dynamic Actions in State "+i+":");
+              pl("\t TABLES.newDynamicActionTable("+i+","+s.dynamicActions.size()+");");
+              lines++;
+              for (int j=0; j<s.dynamicActions.size(); j++)
+                {
+                  testInitContinuation(lines);
+                  ArrayList actions = (ArrayList)s.dynamicActions.get(j);
+                  pl("\t     TABLES.newDynamicActions("+i+","+j+","+actions.size()+");");
+                  lines++;
+                  for (int k=0; k<actions.size(); k++)
+                    {
+                      testInitContinuation(lines);
+                      a = (Action)actions.get(k);
+                      pl("\t      TABLES.setDynamicAction("+i+","+j+","+k+","+a.index()+");");
+                      lines++;
+                    }
+                }
             }
+        }
+      pl("    }");
+    }
+
+  /**
+   * Returns <tt>true</tt> iff some terminal or rule has XML serialization
+   * information.
+   */
+  final boolean hasXmlInfo ()
+    {
+      for (int i=0; i<grammar.tcount; i++)
+        if (grammar.getTerminal(i).xmlInfo() != null)
+          return true;
+
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          Rule r = grammar.getRule(i);
+          if (!r.isOperator() && r.xmlInfo() != null)
+            return true;
+        }
+
+      return false;
+    }
+
+  /**
+   * Writes the static nested class of the <a href="XmlFormBuilder.html"><tt>XmlFormBuilder</tt></a>
+   * building the XML forms specified by the homomorphic annotations of the
+   * terminals and rules (see <tt>XmlInfo.isHomomorphic()</tt>), which are
+   * thus compiled into one method each (see <tt>XmlInfo.generateXmlFormMethod(ParserGenerator,String)</tt>)
+   * rather than interpreted at parse time, and dispatched to by form (see
+   * <tt>writeDispatch(...)</tt>). Its only instance is created when the XML
+   * information is initialized, whatever the order of the static
+   * initializations of the parser class.
+   */
+  final void writeXmlForms () throws IOException
+    {
+      if (!hasXmlInfo())
+        return;
+
+      String builder = XmlInfo.FORM_BUILDER_CLASS;
+
+      pl("  /* ****************** */");
+      pl("  /* COMPILED XML FORMS */");
+      pl("  /* ****************** */");
+      pl();
+      pl("  static final class "+builder+" implements XmlFormBuilder");
+      pl("    {");
+      pl("      static final "+builder+" BUILDER = new "+builder+"();");
+      pl();
 
-          if (!emptyCases.isEmpty())
+      ArrayList keys = new ArrayList();
+      ArrayList statements = new ArrayList();
+
+      // the terminals' forms are negative: list them first for the keys to increase
+      for (int i=grammar.tcount; i-->0;)
+        {
+          XmlInfo info = grammar.getTerminal(i).xmlInfo();
+          if (info != null && info.isHomomorphic())
             {
-              p("          ");
-              for (Iterator e = emptyCases.iterator(); e.hasNext();)
-                p("case "+((Integer)e.next())+": ");
-              pl("\n            break;");
-            }         
-
-          pl("          default:\n            "+defaultAction+"\n            break;");
-          pl("        }\n      return $head$;\n    }");
-          pl();
+              keys.add(Integer.valueOf(-1-i));
+              statements.add("return terminal"+i+"(node,root);");
+            }
+        }
 
-          if (grammar.isDynamic)
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          Rule r = grammar.getRule(i);
+          if (!r.isOperator() && r.xmlInfo() != null && r.xmlInfo().isHomomorphic())
             {
-              pl("  /* ********************* */");
-              pl("  /* UNDO SEMANTIC ACTIONS */");
-              pl("  /* ********************* */");
-              pl();
+              keys.add(Integer.valueOf(i));
+              statements.add("return rule"+i+"(node,root);");
+            }
+        }
 
-              pl("  protected void undoSemanticAction(ParserRule $rule$,ParseNode $head$) throws IOException");
-              pl("    {");
+      writeDispatch("      ","public final org.jdom2.Element createXmlForm (int form, ParseNode node, org.jdom2.Element root)",
+                    "form",keys,statements,"return null;",
+                    "org.jdom2.Element xmlForms_# (int form, ParseNode node, org.jdom2.Element root)",
+                    "return xmlForms_#(form,node,root);");
 
-              pl("      switch($rule$.index())\n        {");
-              for (int i=0; i<grammar.rcount; i++)
-                {
-                  r = grammar.getRule(i);
-                  if (!r.undoAction.equals(Grammar.EMPTY_ACTION))
-                  pl("          case "+i+":\n            "+
-                     // NB: each semantic rule has its own lexical scope:
-                     "{\n            "+
-                     r.undoAction.trim()+"\n            break;"+
-                     "\n            }");;
-                }
-              pl("        }\n      }");
+      for (int i=0; i<grammar.tcount; i++)
+        {
+          XmlInfo info = grammar.getTerminal(i).xmlInfo();
+          if (info != null && info.isHomomorphic())
+            {
               pl();
+              info.generateXmlFormMethod(this,"terminal"+i);
+            }
+        }
 
-              pl("  /* *************************** */");
-              pl("  /* OPERATOR DEFINITION METHODS */");
-              pl("  /* *************************** */");
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          Rule r = grammar.getRule(i);
+          if (!r.isOperator() && r.xmlInfo() != null && r.xmlInfo().isHomomorphic())
+            {
               pl();
+              r.xmlInfo().generateXmlFormMethod(this,"rule"+i);
+            }
+        }
 
-              for (Iterator e=grammar.operatorCategoryTable.keySet().iterator(); e.hasNext();)
+      pl("    }");
+      pl();
+    }
+
+  /**
+   * Writes the static method initializing the XML serialization information
+   * of the terminals and rules when the tables are loaded from a binary
+   * resource (which contains no such information).
+   */
+  final void writeXmlInfoInitialization () throws IOException
+    {
+      if (!hasXmlInfo())
+        return;
+
+      pl("  /* ******************* */");
+      pl("  /* XML SERIALIZATION */");
+      pl("  /* ******************* */");
+      pl();
+
+      initContinuation = "initializeXmlInfo";
+      initContinuationCount = 0;
+
+      initLocals = "      ParserTerminal[] terminals = TABLES.terminals;\n"
+                 + "      ParserRule[] rules = TABLES.rules;\n";
+
+      pl("  static void initializeXmlInfo ()");
+      pl("    {");
+      pl(initLocals);
+
+      int count = 0;
+
+      for (int i=0; i<grammar.tcount; i++)
+        {
+          Terminal t = grammar.getTerminal(i);
+          if (t.xmlInfo() != null)
+            {
+              testInitContinuation(count++);
+              t.xmlInfo().generateTerminalXmlInfo(this,i);
+            }
+        }
+
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          Rule r = grammar.getRule(i);
+          if (!r.isOperator() && r.xmlInfo() != null)
+            {
+              testInitContinuation(count++);
+              r.xmlInfo().generateRuleXmlInfo(this,i);
+            }
+        }
+
+      pl("    }");
+      pl();
+    }
+
+  /**
+   * Writes the parser's tables into the binary resource file loaded by
+   * <tt>ParserTables.load(Class,String)</tt>, which documents its format.
+   */
+  final void writeTablesFile () throws IOException
+    {
+      if (verbosity > Verbose.QUIET)
+        out.println("*** Writing parser tables file "+fullTablesFile);
+
+      ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+      ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+      DataOutputStream data = new DataOutputStream(dataBytes);
+
+      for (int i=0; i<grammar.tcount; i++)
+        {
+          Terminal t = grammar.getTerminal(i);
+          byte[] name = t.name.getBytes("UTF-8");
+          nameBytes.write(name);
+          data.writeInt(name.length);
+          data.writeInt(t.precedence);
+          data.writeInt(t.associativity);
+        }
+
+      for (int i=0; i<grammar.ncount; i++)
+        {
+          byte[] name = grammar.getNonTerminal(i).name.getBytes("UTF-8");
+          nameBytes.write(name);
+          data.writeInt(name.length);
+        }
+
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          Rule r = grammar.getRule(i);
+          data.writeInt(r.head().index());
+          data.writeInt(r.sequence.length-1);
+          if (r.isOperator())
+            {
+              data.writeInt(1);
+              data.writeInt(r.tagPosition);
+              data.writeInt(0);
+            }
+          else
+            {
+              data.writeInt(0);
+              data.writeInt(r.precedence());
+              data.writeInt(r.associativity());
+            }
+        }
+
+      for (int i=0; i<acount; i++)
+        {
+          Action a = (Action)actions.get(i);
+          data.writeInt(a.type);
+          data.writeInt(a.info);
+        }
+
+      for (int i=0; i<grammar.scount; i++)
+        data.writeInt(defaultActions[i]);
+
+      packedActionTable.write(data);
+      packedGotoTable.write(data);
+      data.writeInt(packedUnitGotoTable == null ? 0 : 1);
+      if (packedUnitGotoTable != null)
+        packedUnitGotoTable.write(data);
+
+      int dynamicStates = 0;
+      for (int i=0; i<grammar.scount; i++)
+        if (((State)grammar.states.get(i)).dynamicActions.size() > 0)
+          dynamicStates++;
+
+      data.writeInt(dynamicStates);
+      for (int i=0; i<grammar.scount; i++)
+        {
+          State s = (State)grammar.states.get(i);
+          if (s.dynamicActions.size() > 0)
+            {
+              data.writeInt(i);
+              data.writeInt(s.dynamicActions.size());
+              for (int j=0; j<s.dynamicActions.size(); j++)
                 {
-                  String cat = (String)e.next();
-                  pl("  public final void "+cat+
-                     " (String o, String s, int p) throws NonFatalParseErrorException");
-                  pl("    {");
-                  pl("      defineOperator(\""+Misc.quotify(cat)+"\",o,s,p);");
-                  pl("    }");
-                  pl();
+                  ArrayList actions = (ArrayList)s.dynamicActions.get(j);
+                  data.writeInt(actions.size());
+                  for (int k=0; k<actions.size(); k++)
+                    data.writeInt(((Action)actions.get(k)).index());
                 }
             }
+        }
 
-          pl("  /* **************** */");
-          pl("  /* TERMINAL SYMBOLS */");
-          pl("  /* **************** */");
-          pl();
-          
-          initContinuation = "initializeTerminals";
-          initContinuationCount = 0;
+      data.flush();
 
-          pl("  static void initializeTerminals ()");
-          pl("    {");
+      DataOutputStream file
+        = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fullTablesFile)));
 
-          pl("      terminals = new ParserTerminal["+grammar.tcount+"];\n");
+      try
+        {
+          file.writeInt(ParserTables.MAGIC);
+          file.writeInt(ParserTables.VERSION);
+          file.writeInt(grammar.tcount);
+          file.writeInt(grammar.ncount);
+          file.writeInt(grammar.rcount);
+          file.writeInt(acount);
+          file.writeInt(grammar.scount);
+          file.writeInt(nameBytes.size());
+          file.writeInt(dataBytes.size()/4);
+          nameBytes.writeTo(file);
+          // pad the names so that the data section is aligned on integers:
+          for (int i=nameBytes.size(); i%4 != 0; i++)
+            file.writeByte(0);
+          dataBytes.writeTo(file);
+        }
+      finally
+        {
+          file.close();
+        }
+    }
 
-          for (int i=0; i<grammar.tcount; i++)
+  /**
+   * Writes the <tt>semanticAction(ParserRule)</tt> method as a single
+   * <tt>switch</tt> containing all the rules' semantic actions.
+   */
+  final void writeSemanticActions () throws IOException
+    {
+      Rule r;
+
+      pl("  protected ParseNode semanticAction(ParserRule $rule$) throws IOException\n    {");
+
+      pl("      ParseNode $head$ = new ParseNode($rule$.head);\n");
+
+      ArrayList emptyCases = new ArrayList();
+
+      pl("      switch($rule$.index())\n        {");
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          r = grammar.getRule(i);
+          if (r.action.equals(Grammar.EMPTY_ACTION))
+            emptyCases.add(Integer.valueOf(i));
+          else
+            if (!r.action.equals(Grammar.DEFAULT_ACTION))
+              pl("          case "+i+":\n            "+
+                 // NB: each semantic rule has its own lexical scope:
+                 "{\n            "+
+                 r.action.trim()+"\n            break;"+
+                 "\n            }");
+        }
+
+      if (!emptyCases.isEmpty())
+        {
+          p("          ");
+          for (Iterator e = emptyCases.iterator(); e.hasNext();)
+            p("case "+((Integer)e.next())+": ");
+          pl("\n            break;");
+        }         
+
+      pl("          default:\n            "+defaultAction+"\n            break;");
+      pl("        }\n      return $head$;\n    }");
+      pl();
+    }
+
+  /**
+   * The maximum number of cases of a generated dispatching <tt>switch</tt>
+   * before it is split into blocks (see <tt>writeDispatch(...)</tt>) is
+   * <tt>2<sup>DISPATCH_BLOCK_SHIFT</sup></tt>.
+   */
+  static final int DISPATCH_BLOCK_SHIFT = 8;
+
+  /**
+   * Writes, with the specified indentation, a method with the specified
+   * header whose body is a <tt>switch</tt> on the specified key expression
+   * followed by the specified fallback statement (if not <tt>null</tt>).
+   * Its cases are the elements of <tt>keys</tt> (in increasing order), each
+   * one performing the corresponding element of <tt>statements</tt>, which
+   * must not complete normally.
+   * <p>
+   * Each case costs about ten bytes of bytecode; so, since HotSpot does not
+   * compile a method longer than 8000 bytes, a <tt>switch</tt> of more than
+   * <tt>2<sup>DISPATCH_BLOCK_SHIFT</sup></tt> cases is split into blocks of
+   * consecutive keys sharing the same value of <tt>key >> DISPATCH_BLOCK_SHIFT</tt>.
+   * Each block is dispatched in its own method, which has the specified block
+   * signature and is invoked by the specified block call, where <tt>#</tt>
+   * stands for the block's number (prefixed with <tt>m</tt> instead of a minus
+   * sign if it is negative). The method written then dispatches on the block
+   * only, and the fallback is performed at both levels. Thus, no method
+   * exceeds the limit unless there are more than some 700 blocks (<i>i.e.</i>,
+   * some 180,000 cases).
+   */
+  final void writeDispatch (String indent, String header, String key,
+                            ArrayList keys, ArrayList statements, String fallback,
+                            String blockSignature, String blockCall) throws IOException
+    {
+      int size = keys.size();
+
+      if (size <= 1<<DISPATCH_BLOCK_SHIFT)
+        {
+          writeDispatchMethod(indent,header,key,keys,statements,0,size,fallback);
+          return;
+        }
+
+      ArrayList blocks = new ArrayList();
+      ArrayList calls = new ArrayList();
+
+      for (int i=0; i<size; i++)
+        {
+          int block = ((Integer)keys.get(i)).intValue() >> DISPATCH_BLOCK_SHIFT;
+          if (blocks.isEmpty() || ((Integer)blocks.get(blocks.size()-1)).intValue() != block)
             {
-              testInitContinuation(i);
-              t = grammar.getTerminal(i);
-              pl("      newTerminal("+i+",\""+Misc.quotify(t.name)+"\","
-                                     +t.precedence+","+t.associativity+");");
-	      if (t.xmlInfo() != null)
-		t.xmlInfo().generateTerminalXmlInfo(this,i);
+              blocks.add(Integer.valueOf(block));
+              calls.add(blockCall.replace("#",blockName(block)));
             }
-          pl("    }");
+        }
+
+      writeDispatchMethod(indent,header,"("+key+") >> "+DISPATCH_BLOCK_SHIFT,
+                          blocks,calls,0,blocks.size(),fallback);
+
+      for (int start=0, end; start<size; start=end)
+        {
+          int block = ((Integer)keys.get(start)).intValue() >> DISPATCH_BLOCK_SHIFT;
+
+          for (end=start+1;
+               end<size && ((Integer)keys.get(end)).intValue() >> DISPATCH_BLOCK_SHIFT == block;
+               end++);
 
           pl();
-          pl("  /* ******************** */");
-          pl("  /* NON-TERMINAL SYMBOLS */");
-          pl("  /* ******************** */");
-          pl();
+          writeDispatchMethod(indent,"private final "+blockSignature.replace("#",blockName(block)),
+                              key,keys,statements,start,end,fallback);
+        }
+    }
 
-          initContinuation = "initializeNonTerminals";
-          initContinuationCount = 0;
+  /**
+   * Returns the name of the dispatching block of the specified number (see
+   * <tt>writeDispatch(...)</tt>).
+   */
+  private static final String blockName (int block)
+    {
+      return block < 0 ? "m"+(-block) : String.valueOf(block);
+    }
 
-          pl("  static void initializeNonTerminals ()");
-          pl("    {");
-          pl("      nonterminals = new ParserNonTerminal["+grammar.ncount+"];\n");
+  /**
+   * Writes a dispatching method with the cases of <tt>keys</tt> and
+   * <tt>statements</tt> from <tt>start</tt> (inclusive) to <tt>end</tt>
+   * (exclusive) (see <tt>writeDispatch(...)</tt>).
+   */
+  private final void writeDispatchMethod (String indent, String header, String key,
+                                          ArrayList keys, ArrayList statements,
+                                          int start, int end, String fallback)
+    throws IOException
+    {
+      pl(indent+header);
+      pl(indent+"  {");
+      pl(indent+"    switch ("+key+")");
+      pl(indent+"      {");
+      for (int i=start; i<end; i++)
+        pl(indent+"      case "+keys.get(i)+": "+statements.get(i));
+      pl(indent+"      }");
+      if (fallback != null)
+        pl(indent+"    "+fallback);
+      pl(indent+"  }");
+    }
+
+  /**
+   * Writes the <tt>semanticAction(ParserRule)</tt> method as a dense
+   * <tt>switch</tt> dispatching to one method per rule having a semantic
+   * action (see <tt>Options.getSplitActions()</tt>), itself split into
+   * blocks for large grammars (see <tt>writeDispatch(...)</tt>). Each
+   * action is wrapped in a <tt>do { ... } while (false)</tt> statement so
+   * that a <tt>break</tt> in it still ends the action as it does in the
+   * single <tt>switch</tt>.
+   */
+  final void writeSplitSemanticActions () throws IOException
+    {
+      Rule r;
 
-          for (int i=0; i<grammar.ncount; i++)
+      ArrayList keys = new ArrayList();
+      ArrayList statements = new ArrayList();
+
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          r = grammar.getRule(i);
+          if (r.action.equals(Grammar.EMPTY_ACTION))
             {
-              testInitContinuation(i);
-              pl("      newNonTerminal("+i+",\""
-		 +Misc.quotify(grammar.getNonTerminal(i).name)+"\");");
+              keys.add(Integer.valueOf(i));
+              statements.add("return new ParseNode($rule$.head);");
             }
-          pl("    }");
+          else
+            if (!r.action.equals(Grammar.DEFAULT_ACTION))
+              {
+                keys.add(Integer.valueOf(i));
+                statements.add("return semanticAction_"+i+"($rule$);");
+              }
+        }
 
-          pl();
-          pl("  /* **************** */");
-          pl("  /* PRODUCTION RULES */");
-          pl("  /* **************** */");
-          pl();
+      writeDispatch("  ","protected ParseNode semanticAction (ParserRule $rule$) throws IOException",
+                    "$rule$.index()",keys,statements,"return defaultSemanticAction($rule$);",
+                    "ParseNode semanticActions_# (ParserRule $rule$) throws IOException",
+                    "return semanticActions_#($rule$);");
+      pl();
+
+      pl("  private final ParseNode defaultSemanticAction (ParserRule $rule$) throws IOException");
+      pl("    {");
+      pl("      ParseNode $head$ = new ParseNode($rule$.head);");
+      pl("      "+defaultAction);
+      pl("      return $head$;");
+      pl("    }");
+      pl();
 
-          initContinuation = "initializeRules";
-          initContinuationCount = 0;
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          r = grammar.getRule(i);
+          if (r.action.equals(Grammar.EMPTY_ACTION) || r.action.equals(Grammar.DEFAULT_ACTION))
+            continue;
 
-          pl("  static void initializeRules ()");
+          pl("  private final ParseNode semanticAction_"+i+" (ParserRule $rule$) throws IOException");
           pl("    {");
-          pl("      rules = new ParserRule["+grammar.rcount+"];");
-	  pl();
+          pl("      ParseNode $head$ = new ParseNode($rule$.head);");
+          pl("      do\n        {\n          "+r.action.trim()+"\n        }\n      while (false);");
+          pl("      return $head$;");
+          pl("    }");
+          pl();
+        }
+    }
+
+  /**
+   * Writes the <tt>undoSemanticAction(ParserRule,ParseNode)</tt> method of a
+   * dynamic parser as a dense <tt>switch</tt> dispatching to one method per
+   * rule having an undo action (see <tt>writeSplitSemanticActions()</tt>).
+   */
+  final void writeSplitUndoSemanticActions () throws IOException
+    {
+      Rule r;
+
+      ArrayList keys = new ArrayList();
+      ArrayList statements = new ArrayList();
 
-          for (int i=0; i<grammar.rcount; i++)
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          r = grammar.getRule(i);
+          if (!r.undoAction.equals(Grammar.EMPTY_ACTION))
             {
-              testInitContinuation(i);
-              r = grammar.getRule(i);
-              if (r.isOperator())
-                pl("      rules["+i+"] = new ParserRule("+r.head().index()+","+
-                   +(r.sequence.length-1)+","+i+","+r.tagPosition+");");
-              else
-		{
-		  pl("      rules["+i+"] = new ParserRule("+r.head().index()+","+
-		     +(r.sequence.length-1)+","+i+","
-		     +r.precedence()+","+r.associativity()+");");
-		  if (r.xmlInfo() != null)
-		    r.xmlInfo().generateRuleXmlInfo(this,i);
-		}
-	    }
-          pl("    }");
+              keys.add(Integer.valueOf(i));
+              statements.add("undoSemanticAction_"+i+"($rule$,$head$); return;");
+            }
+        }
 
-          pl();
-          pl("  /* ************** */");
-          pl("  /* PARSER ACTIONS */");
-          pl("  /* ************** */");
-          pl();
+      writeDispatch("  ","protected void undoSemanticAction (ParserRule $rule$,ParseNode $head$) throws IOException",
+                    "$rule$.index()",keys,statements,null,
+                    "void undoSemanticActions_# (ParserRule $rule$,ParseNode $head$) throws IOException",
+                    "undoSemanticActions_#($rule$,$head$); return;");
+      pl();
 
-          initContinuation = "initializeParserActions";
-          initContinuationCount = 0;
+      for (int i=0; i<grammar.rcount; i++)
+        {
+          r = grammar.getRule(i);
+          if (r.undoAction.equals(Grammar.EMPTY_ACTION))
+            continue;
 
-          pl("  static void initializeParserActions ()");
+          pl("  private final void undoSemanticAction_"+i+" (ParserRule $rule$,ParseNode $head$) throws IOException");
           pl("    {");
-          pl("      actions = new ParserAction["+acount+"];\n");
+          pl("      do\n        {\n          "+r.undoAction.trim()+"\n        }\n      while (false);");
+          pl("    }");
+          pl();
+        }
+    }
+
+  final void writePublicClasses () throws IOException
+    {
+      for (Iterator k = grammar.publicClasses.keySet().iterator(); k.hasNext();)
+        {
+          String className = (String)k.next();
+          String classDef  = grammar.publicClasses.get(className).toString();
+
+          setOutput(parserDestination + Options.getSeparator() + className + ".java");
+          writePreamble();
+          pl(classDef);
+          p_out.close();
+        }
+    }
+
+  String usefile;
+
+  final void dumpCode (ArrayList code, String banner) throws IOException
+    {
+      if (!code.isEmpty())
+        {
+          pl(banner);
+
+          for (Iterator e = code.iterator(); e.hasNext();)
+            {
+              Object element = e.next();
+
+              if (element instanceof String)
+                { usefile = (String)element;
+                  try
+                    {
+                      BufferedReader rd = new BufferedReader(new FileReader(usefile));
+                      reportProgress_6();
+                      pl("\n  /* START OF CONTENTS OF FILE: "+usefile+" */\n");
+                      for (int c=rd.read(); c!=-1; c=rd.read()) p(c);
+                      rd.close();
+                      reportProgress_7();
+                      pl("  /* END OF CONTENTS OF FILE: "+usefile+" */\n");
+                    }
+                  catch (FileNotFoundException nofile)
+                    {
+                      Grammar.warning("Cannot include file: "
+                                      +usefile+" (not found!)");
+                    }
+                  catch (IOException io)
+                    {
+                      Grammar.warning("Something wrong happened while reading: "
+                                      +usefile+": "+io);
+                    }
+                  continue;
+                }
+
+              pl(element.toString());
+              pl();
+            }
+        }
+    }
+
+  /**
+   * Maximum number of encoded characters per string constant when writing
+   * a compressed table. This keeps each constant well within the class
+   * file limit of 65535 bytes whatever the characters' UTF-8 sizes.
+   */
+  final static int TABLE_CHUNK_SIZE = 16000;
 
-          for (int i=0; i<acount; i++)
+  /**
+   * Writes a statement passing the specified compressed table, decoded
+   * from string constants, to the specified static setter.
+   */
+  final void writeCompressedTable (String setter, CompressedTable table) throws IOException
+    {
+      String code = CompressedTable.encode(table);
+
+      pl("      "+setter+"(CompressedTable.decode(new String[]");
+      pl("        {");
+      for (int chunk=0; chunk<code.length(); chunk+=TABLE_CHUNK_SIZE)
+        {
+          int end = Math.min(code.length(),chunk+TABLE_CHUNK_SIZE);
+          for (int i=chunk; i<end; i+=16)
             {
-              testInitContinuation(i);
-              a = (Action)actions.get(i);
-              pl("      newAction("+i+","+a.type+","+a.info+");");
+              p(i == chunk ? "          \"" : "          +\"");
+              for (int j=i; j<Math.min(end,i+16); j++)
+                p(escapeTableChar(code.charAt(j)));
+              pl(end-i <= 16 ? (end == code.length() ? "\"" : "\",") : "\"");
             }
-          pl("    }");
+        }
+      pl("        }));");
+    }
+
+  /**
+   * Returns a Java string literal representation of the specified character
+   * that is immune to Java's early processing of unicode escapes.
+   */
+  final static String escapeTableChar (char c)
+    {
+      if (c >= 0x20 && c < 0x7F && c != '"' && c != '\\')
+        return String.valueOf(c);
+
+      if (c < 0x100)
+        return "\\"+(char)('0'+(c>>6))+(char)('0'+((c>>3)&7))+(char)('0'+(c&7));
+
+      String hex = Integer.toHexString(c);
+      return "\\u"+"0000".substring(hex.length())+hex;
+    }
 
+  final void writeParser ()
+    {
+      if (Options.getNoParser())
+	return;
+
+      reportProgress_8();
+
+      Terminal t;
+      NonTerminal n;
+      Rule r;
+      Action a;
+      Map m;
+      State s;
+
+      String superClass = (grammar.isDynamic ? "Dynamic" : "Static");
+      
+      try
+        {
+          setOutput(fullParserFile);
+
+          writePreamble();
+          
           pl();
-          pl("  /* ************* */");
-          pl("  /* PARSER STATES */");
-          pl("  /* ************* */");
+          pl("/* ************ */");
+          pl("/* PARSER CLASS */");
+          pl("/* ************ */");
           pl();
 
-          pl("  static void initializeParserStates ()");
-          pl("    {");
-          pl("      states = new ParserState["+grammar.scount+"];\n");
-          
-          pl("      for (int i=0; i<"+grammar.scount+"; i++) newState(i);");
-          pl("    }");
+          pl(grammar.accessTag+"class "+parserPrefix
+             +" extends "+superClass+"Parser\n{");
 
-          pl();
           pl("  /* ************* */");
-          pl("  /* ACTION TABLES */");
+          pl("  /* PARSER TABLES */");
           pl("  /* ************* */");
           pl();
 
-          initContinuation = "initializeActionTables";
-          initContinuationCount = 0;
+          pl("  public final static ParserTables TABLES");
+          pl("    = new ParserTables("+grammar.tcount+","+grammar.ncount+","
+             +grammar.rcount+","+acount+","+grammar.scount+");");
+          pl();
 
-          pl("  static void initializeActionTables ()");
-          pl("    {");
-          pl("      newActionTables("+ac_count+");\n");
+          pl("  /* ************** */");
+          pl("  /* TERMINAL CODES */");
+          pl("  /* ************** */");
+          pl();
 
-          int lines = 0;
-          for (int i=0; i<ac_count; i++)
+          for (int i=0; i<grammar.tcount; i++)
             {
-              testInitContinuation(lines);
-              m = (Map)ac_tables.get(i);
-              pl("      newActionTable("+i+","+m.size()+");");
-              for (Iterator e = m.keySet().iterator(); e.hasNext();)
-                {
-                  testInitContinuation(lines);
-                  t = (Terminal)e.next();
-                  a = (Action)m.get(t);
-                  pl("\tsetAction("+i+","+t.index()+","+a.index()+");");
-                  lines++;
-                }
-              pl();
+              t = grammar.getTerminal(i);
+              if (isCodeName(t.name))
+                pl("  public final static int T_"+t.name+" = "+i+";");
             }
-          pl("    }\n");
+          pl();
 
-          pl("  /* *********** */");
-          pl("  /* GOTO TABLES */");
-          pl("  /* *********** */");
+          pl("  /* ************************ */");
+          pl("  /* PARSER CLASS CONSTRUCTOR */");
+          pl("  /* ************************ */");
           pl();
 
-          initContinuation = "initializeGotoTables";
-          initContinuationCount = 0;
+          pl("  public "+parserPrefix+" (Tokenizer t)\n    {\n      super(TABLES);\n      input = t;");
+	  if (grammar.xmlroot() != null)
+	    pl("      xmlroot = \""+grammar.xmlroot()+"\";");
+	  if (grammar.xmlRootNSPrefix() != "")
+	    pl("      xmlRootNSPrefix = \""+grammar.xmlRootNSPrefix()+"\";");
+	  if (!grammar.namespaces().isEmpty())
+	    {
+	      pl("      String[] ns = "
+		 +Misc.arrayToString(grammar.namespaces().toStringArray(),"{",",","}")
+		 +";");
+	      pl("      namespaces = ns;");
+	    }
 
-          pl("  static void initializeGotoTables ()");
-          pl("    {");
-          pl("      newGotoTables("+gt_count+");\n");
+	  if (grammar.isDynamic)
+	    {
+	      pl("      choiceStack = new FiniteStack("+Options.getChoiceHistory()+");");
+	      pl("      trailStack = new FiniteStack("+Options.getTrailHistory()+");");
+	      pl("      resolveRRsWithPrecedence = "+Options.resolveRRsWithPrecedence()+";");
+	    }
 
-          lines = 0;
-          for (int i=0; i<gt_count; i++)
+          if (grammar.admitsOperators())
             {
-              testInitContinuation(lines);
-              m = (Map)gt_tables.get(i);
-              pl("      newGotoTable("+i+","+m.size()+");");
-              for (Iterator e = m.keySet().iterator(); e.hasNext();)
+              pl();
+              pl("      /* **************** */");
+              pl("      /* OPERATOR SYMBOLS */");
+              pl("      /* **************** */");
+              pl();
+
+              pl("      operators = new ArrayList("
+                 +grammar.operators.size()
+                 +");\n");
+
+              for (int i=0; i<grammar.ocount; i++)
                 {
-                  testInitContinuation(lines);
-                  n = (NonTerminal)e.next();
-                  s = (State)m.get(n);
-                  pl("\tsetGoto("+i+","+n.index()+","+s.index()+");");
-                  lines++;
+                  Operator o = grammar.getOperator(i);
+                  pl("      newOperator(\""+Misc.quotify(o.name)+"\","+o.category.index()+","
+                     +o.precedence+","+o.associativity+","+o.fixity+");");
                 }
-              pl();
+            }
+// 	  else
+// 	    pl("      admitsOperators = false;");
+	  
+          pl("    }\n");
+
+          dumpCode(grammar.parserDeclarations,
+                   "  /* ************************* */\n"+
+                   "  /* PARSER CLASS DECLARATIONS */\n"+
+                   "  /* ************************* */");
+
+          pl("  /* ********************** */");
+          pl("  /* STATIC INITIALIZATIONS */");
+          pl("  /* ********************** */");
+          pl();
+          pl("  static");
+          pl("    {");
+          if (Options.getBinaryTables())
+            {
+              pl("      try");
+              pl("        {");
+              pl("          TABLES."+(Options.getMappedTables() ? "map" : "load")
+                 +"("+parserPrefix+".class,\""+tablesFile+"\");");
+              pl("        }");
+              pl("      catch (IOException e)");
+              pl("        {");
+              pl("          throw new ExceptionInInitializerError(e);");
+              pl("        }");
+              if (hasXmlInfo())
+                pl("      initializeXmlInfo();");
+            }
+          else
+            {
+              pl("      initializeTerminals();");
+              pl("      initializeNonTerminals();");
+              pl("      initializeRules();");
+              pl("      initializeParserActions();");
+              pl("      initializeParserStates();");
+              pl("      initializeActionTables();");
+              pl("      initializeGotoTables();");
+              pl("      initializeStateTables();");
             }
           pl("    }\n");
 
-          pl("  /* ************ */");
-          pl("  /* STATE TABLES */");
-          pl("  /* ************ */");
+          pl("  /* ********************* */");
+          pl("  /* PARTIAL PARSE METHODS */");
+          pl("  /* ********************* */");
           pl();
 
-          initContinuation = "initializeStateTables";
-          initContinuationCount = 0;
+          for (Iterator e=grammar.roots.keySet().iterator(); e.hasNext();)
+            {
+              NonTerminal root = (NonTerminal)e.next();
+              Terminal token = (Terminal)grammar.roots.get(root);
 
-          pl("  static void initializeStateTables ()");
-          pl("    {");
+              String rootName = Misc.capitalize(root.name());
+              String tokenName = token.name().toUpperCase();
+
+              pl("  public final static ParseNode "+tokenName+
+                 " = new ParseNode(TABLES.terminals["+token.index()+"]);");
+              pl();
+
+              pl("  public final void parse"+rootName+" (String s) throws IOException");
+              pl("    {");
+              pl("      parse"+rootName+"(new StringReader(s));");
+              pl("    }");
+              pl();
+
+              pl("  public final void parse"+rootName+" (Reader r) throws IOException");
+              pl("    {");
+              pl("      input.setReader(r);");
+              pl("      errorManager().recoverFromErrors(false);");
+              pl("      setSwitchToken("+tokenName+");");
+              pl("      parse();");
+              pl("    }");
+              pl();
 
-          lines = 0;
-          for (int i=0; i<grammar.scount; i++)
+              pl("  public final void stream"+rootName+" (Reader r, RootHandler handler) throws IOException");
+              pl("    {");
+              pl("      input.setReader(r);");
+              pl("      errorManager().recoverFromErrors(false);");
+              pl("      stream("+tokenName+",handler);");
+              pl("    }");
+              pl();
+            }
+
+          pl("  /* **************** */");
+          pl("  /* SEMANTIC ACTIONS */");
+          pl("  /* **************** */");
+          pl();
+
+          if (Options.getSplitActions())
+            writeSplitSemanticActions();
+          else
+            writeSemanticActions();
+
+          if (grammar.isDynamic)
             {
-              testInitContinuation(lines);
-              s = (State)grammar.states.get(i);
-              pl("      setTables("+i+","+s.ac_index+","+s.gt_index+");");
-              if (s.dynamicActions.size() > 0)
+              pl("  /* ********************* */");
+              pl("  /* UNDO SEMANTIC ACTIONS */");
+              pl("  /* ********************* */");
+              pl();
+
+              if (Options.getSplitActions())
+                writeSplitUndoSemanticActions();
+              else
                 {
-                  pl("//    Dynamic Actions in State "+i+":");
-                  pl("\t newDynamicActionTable("+i+","+s.dynamicActions.size()+");");
-                  lines++;
-                  for (int j=0; j<s.dynamicActions.size(); j++)
+                  pl("  protected void undoSemanticAction(ParserRule $rule$,ParseNode $head$) throws IOException");
+                  pl("    {");
+
+                  pl("      switch($rule$.index())\n        {");
+                  for (int i=0; i<grammar.rcount; i++)
                     {
-                      testInitContinuation(lines);
-                      ArrayList actions = (ArrayList)s.dynamicActions.get(j);
-                      pl("\t     newDynamicActions("+i+","+j+","+actions.size()+");");
-                      lines++;
-                      for (int k=0; k<actions.size(); k++)
-                        {
-                          testInitContinuation(lines);
-                          a = (Action)actions.get(k);
-                          pl("\t      setDynamicAction("+i+","+j+","+k+","+a.index()+");");
-                          lines++;
-                        }
+                      r = grammar.getRule(i);
+                      if (!r.undoAction.equals(Grammar.EMPTY_ACTION))
+                      pl("          case "+i+":\n            "+
+                         // NB: each semantic rule has its own lexical scope:
+                         "{\n            "+
+                         r.undoAction.trim()+"\n            break;"+
+                         "\n            }");;
                     }
+                  pl("        }\n      }");
+                  pl();
+                }
+
+              pl("  /* *************************** */");
+              pl("  /* OPERATOR DEFINITION METHODS */");
+              pl("  /* *************************** */");
+              pl();
+
+              for (Iterator e=grammar.operatorCategoryTable.keySet().iterator(); e.hasNext();)
+                {
+                  String cat = (String)e.next();
+                  pl("  public final void "+cat+
+                     " (String o, String s, int p) throws NonFatalParseErrorException");
+                  pl("    {");
+                  pl("      defineOperator(\""+Misc.quotify(cat)+"\",o,s,p);");
+                  pl("    }");
+                  pl();
                 }
             }
-          pl("    }");
+
+          writeXmlForms();
+
+          if (Options.getBinaryTables())
+            {
+              writeTablesFile();
+              writeXmlInfoInitialization();
+            }
+          else
+            writeTableInitialization();
 
           pl("}");
 
@@ -17,7 +17,7 @@ package hlt.language.syntax;
 
 public class ParserNonTerminal extends ParserSymbol
 {
-  public ParserNonTerminal(String name, int index)
-    { super(name,GenericParser.nonterminals,index);
+  public ParserNonTerminal(ParserTables tables, String name, int index)
+    { super(name,tables.nonterminals,index);
     }
 }
@@ -32,13 +32,13 @@ public class ParserOperator extends OperatorSymbol
       switch (fixity)
         {
         case PREFIX:
-          subCategory = GenericParser.terminal(subcat+"_");
+          subCategory = parser.terminal(subcat+"_");
           break;
         case INFIX:
-          subCategory = GenericParser.terminal("_"+subcat+"_");
+          subCategory = parser.terminal("_"+subcat+"_");
           break;
         case POSTFIX:
-          subCategory = GenericParser.terminal("_"+subcat);
+          subCategory = parser.terminal("_"+subcat);
         }
     }
 
@@ -52,13 +52,13 @@ public class ParserOperator extends OperatorSymbol
       switch (fixity)
         {
         case PREFIX:
-          subCategory = GenericParser.terminal(subcat+"_");
+          subCategory = parser.terminal(subcat+"_");
           break;
         case INFIX:
-          subCategory = GenericParser.terminal("_"+subcat+"_");
+          subCategory = parser.terminal("_"+subcat+"_");
           break;
         case POSTFIX:
-          subCategory = GenericParser.terminal("_"+subcat);
+          subCategory = parser.terminal("_"+subcat);
         }
     }
 
@@ -0,0 +1,83 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * This is the class of thread-safe pools of parser instances of the same
+ * class. Since a parser holds the mutable state of the parse it performs,
+ * it may not be shared by concurrent parses; but creating a new one for
+ * each parse re-runs its <tt>initialize()</tt> method and, for a <a
+ * href="DynamicParser.html"><tt>DynamicParser</tt></a>, rebuilds its
+ * operator tables. Instead, a parser is leased from a pool for the
+ * duration of a parse and then released to it, which resets it (see
+ * <tt>GenericParser.resetParser()</tt>) for the next parse.
+ * <p>
+ * A pool keeps at most <tt>capacity</tt> idle parsers. It never blocks:
+ * when no idle parser is available, a new one is created by the pool's
+ * <a href="ParserFactory.html"><tt>ParserFactory</tt></a>, and a released
+ * parser that does not fit in the pool is dropped.
+ * <p>
+ * <b>NB:</b> only the parsing state is reset upon release; whatever else
+ * a parse's semantic actions may change in a parser (<i>e.g.</i>, dynamic
+ * operator definitions) is kept for the next parse unless the generated
+ * parser's class overrides <tt>resetParser()</tt> accordingly.
+ *
+ * @see         ParserFactory
+ * @see         ParseService
+ */
+
+public class ParserPool
+{
+  /**
+   * The factory creating this pool's parsers.
+   */
+  private final ParserFactory factory;
+
+  /**
+   * The idle parsers.
+   */
+  private final ArrayBlockingQueue idle;
+
+  /**
+   * Constructs a pool of parsers created by the specified factory, keeping
+   * at most the specified number of idle parsers.
+   */
+  public ParserPool (ParserFactory factory, int capacity)
+    {
+      this.factory = factory;
+      idle = new ArrayBlockingQueue(capacity);
+    }
+
+  /**
+   * Returns an idle parser from this pool, or a new one if there is none.
+   */
+  public final GenericParser lease ()
+    {
+      GenericParser parser = (GenericParser)idle.poll();
+      return parser == null ? factory.newParser() : parser;
+    }
+
+  /**
+   * Resets the specified parser, which must have been leased from this
+   * pool, and returns it to this pool if it is not full.
+   */
+  public final void release (GenericParser parser)
+    {
+      parser.resetParser();
+      parser.setSwitchToken(null);
+      parser.setTokenizer(null);
+      idle.offer(parser);
+    }
+
+  /**
+   * Returns the number of idle parsers in this pool.
+   */
+  public final int idleCount ()
+    {
+      return idle.size();
+    }
+}
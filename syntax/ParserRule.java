@@ -65,18 +65,19 @@ public class ParserRule extends ArrayIndexed
   // CONSTRUCTORS
   //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
 
-  public ParserRule (int head, int length, int index, int tagPosition)
+  public ParserRule (ParserTables tables, int head, int length, int index, int tagPosition)
     {
-      super(GenericParser.rules,index);
-      this.head = GenericParser.nonterminals[head];
+      super(tables.rules,index);
+      this.head = tables.nonterminals[head];
       this.length = length;
       this.tagPosition = tagPosition;
     }
 
-  public ParserRule (int head, int length, int index, int precedence, int associativity)
+  public ParserRule (ParserTables tables, int head, int length, int index,
+                     int precedence, int associativity)
     {
-      super(GenericParser.rules,index);
-      this.head = GenericParser.nonterminals[head];
+      super(tables.rules,index);
+      this.head = tables.nonterminals[head];
       this.length = length;
       this.precedence = precedence;
       this.associativity = associativity;
@@ -0,0 +1,258 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.util.Arrays;
+import java.util.AbstractList;
+
+import hlt.language.util.TimeStamped;
+
+/**
+ * This is the class of the parser's stack. Rather than a stack of <a
+ * href="ParserStackElement.html"><tt>ParserStackElement</tt></a> objects,
+ * it is made of parallel growable arrays: an <tt>int[]</tt> for the states'
+ * indices, a <tt>ParseNode[]</tt> for the nodes, and - only for a <a
+ * href="DynamicParser.html"><tt>DynamicParser</tt></a>, which needs them -
+ * a <tt>long[]</tt> for the time stamps, and - only when building a <a
+ * href="FlatTree.html"><tt>FlatTree</tt></a> - an <tt>int[]</tt> for the
+ * nodes' indices in the flat tree. Thus, pushing and popping allocate
+ * nothing, and a reduction can read its handle in place (see <tt>nodes()</tt>
+ * and <tt>base(int)</tt>) before dropping it.
+ * <p>
+ * Elements are accessed by their absolute position from the bottom of the
+ * stack (<tt>0</tt>) to its top (<tt>size()-1</tt>). As a <tt>TimeStamped</tt>
+ * object, a parser stack stands for its top element. Finally, the
+ * <tt>AbstractList</tt> interface is provided only for displaying purposes:
+ * its <tt>get(int)</tt> method materializes a <tt>ParserStackElement</tt>.
+ *
+ * @see         GenericParser
+ * @see         DynamicParser
+ */
+
+final class ParserStack extends AbstractList implements TimeStamped
+{
+  private int[] states;
+  private ParseNode[] nodes;
+  private long[] stamps;
+  private int[] flatIndices;
+  private int size = 0;
+
+  ParserStack ()
+    {
+      this(64);
+    }
+
+  ParserStack (int capacity)
+    {
+      states = new int[capacity];
+      nodes = new ParseNode[capacity];
+    }
+
+  /**
+   * Returns the number of elements on this stack.
+   */
+  public final int size ()
+    {
+      return size;
+    }
+
+  /**
+   * Empties this stack.
+   */
+  public final void clear ()
+    {
+      Arrays.fill(nodes,0,size,null);
+      size = 0;
+    }
+
+  /**
+   * Pushes the specified state index and node on this stack.
+   */
+  final void push (int state, ParseNode node)
+    {
+      if (size == states.length)
+        grow();
+
+      states[size] = state;
+      nodes[size] = node;
+      if (stamps != null)
+        stamps[size] = 0;
+      if (flatIndices != null)
+        flatIndices[size] = -1;
+      size++;
+    }
+
+  /**
+   * Pushes the specified state index, node, and time stamp on this stack.
+   */
+  final void push (int state, ParseNode node, long stamp)
+    {
+      push(state,node);
+      setTimeStamp(stamp);
+    }
+
+  /**
+   * Pops the top element off this stack.
+   */
+  final void pop ()
+    {
+      nodes[--size] = null;
+    }
+
+  /**
+   * Pops the <tt>n</tt> top elements off this stack.
+   */
+  final void drop (int n)
+    {
+      Arrays.fill(nodes,size-n,size,null);
+      size -= n;
+    }
+
+  /**
+   * Returns the index of the state on top of this stack.
+   */
+  final int topState ()
+    {
+      return states[size-1];
+    }
+
+  /**
+   * Returns the node on top of this stack.
+   */
+  final ParseNode topNode ()
+    {
+      return nodes[size-1];
+    }
+
+  /**
+   * Returns the index of the state at the specified position.
+   */
+  final int state (int i)
+    {
+      return states[i];
+    }
+
+  /**
+   * Returns the node at the specified position.
+   */
+  final ParseNode node (int i)
+    {
+      return nodes[i];
+    }
+
+  /**
+   * Sets the node at the specified position.
+   */
+  final void setNode (int i, ParseNode node)
+    {
+      nodes[i] = node;
+    }
+
+  /**
+   * Returns the time stamp at the specified position.
+   */
+  final long stamp (int i)
+    {
+      return stamps == null ? 0 : stamps[i];
+    }
+
+  /**
+   * Returns the index in the flat tree being built of the node at the
+   * specified position, or <tt>-1</tt> if it has none.
+   */
+  final int flatIndex (int i)
+    {
+      return flatIndices == null ? -1 : flatIndices[i];
+    }
+
+  /**
+   * Sets the index in the flat tree being built of the top node.
+   */
+  final void setFlatIndex (int index)
+    {
+      if (flatIndices == null)
+        {
+          flatIndices = new int[states.length];
+          Arrays.fill(flatIndices,-1);
+        }
+      flatIndices[size-1] = index;
+    }
+
+  /**
+   * Returns the position of the first element of a handle made of the
+   * <tt>n</tt> top elements of this stack.
+   */
+  final int base (int n)
+    {
+      return size-n;
+    }
+
+  /**
+   * Returns the array of nodes backing this stack. This is meant for reading
+   * a handle in place, between positions <tt>base(n)</tt> (inclusive) and
+   * <tt>size()</tt> (exclusive). It must not be retained, as it is replaced
+   * whenever the stack grows.
+   */
+  final ParseNode[] nodes ()
+    {
+      return nodes;
+    }
+
+  /**
+   * Returns a copy of the <tt>n</tt> top elements of this stack as an array of
+   * <tt>ParserStackElement</tt>s, from the deepest to the topmost one.
+   */
+  final ParserStackElement[] handle (int n)
+    {
+      ParserStackElement[] handle = new ParserStackElement[n];
+      for (int i=0; i<n; i++)
+        handle[i] = (ParserStackElement)get(size-n+i);
+      return handle;
+    }
+
+  private final void grow ()
+    {
+      int capacity = 2*states.length;
+      states = Arrays.copyOf(states,capacity);
+      nodes = Arrays.copyOf(nodes,capacity);
+      if (stamps != null)
+        stamps = Arrays.copyOf(stamps,capacity);
+      if (flatIndices != null)
+        flatIndices = Arrays.copyOf(flatIndices,capacity);
+    }
+
+  /**
+   * Returns the time stamp of the top element.
+   */
+  public final long getTimeStamp ()
+    {
+      return stamp(size-1);
+    }
+
+  /**
+   * Sets the time stamp of the top element.
+   */
+  public final void setTimeStamp (long stamp)
+    {
+      if (stamps == null)
+        stamps = new long[states.length];
+      stamps[size-1] = stamp;
+    }
+
+  /**
+   * Returns a new <tt>ParserStackElement</tt> for the element at the
+   * specified position.
+   */
+  public final Object get (int i)
+    {
+      if (i < 0 || i >= size)
+        throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size);
+
+      ParserStackElement element = new ParserStackElement(states[i],nodes[i]);
+      element.setTimeStamp(stamp(i));
+      element.setFlatIndex(flatIndex(i));
+      return element;
+    }
+}
@@ -8,8 +8,12 @@ import hlt.language.util.TimeStamped;
 
 /**
  * This implements the class of the objects pushed on the parser's stack.
- * It is simply a pair consisting of a state and a token node. For dynamic
- * parsing, a time stamp is also provided.
+ * It is simply a pair consisting of a state's index and a token node. For
+ * dynamic parsing, a time stamp is also provided. NB: the parser's stack
+ * (see <a href="ParserStack.html"><tt>ParserStack</tt></a>) does not
+ * actually store such objects; they are only created to save a handle on
+ * a <a href="DynamicParser.html"><tt>DynamicParser</tt></a>'s trail, and
+ * for displaying the stack.
  *
  * @version     Last modified on Fri Apr 13 20:10:57 2012 by hak
  * @author      <a href="mailto:hak@acm.org">Hassan A&iuml;t-Kaci</a>
@@ -17,22 +21,23 @@ import hlt.language.util.TimeStamped;
  */
 class ParserStackElement implements TimeStamped
 {
-  private ParserState state;
+  private int state;
   private ParseNode node;
   private long stamp;
+  private int flatIndex = -1;
 
-  ParserStackElement (ParserState state, ParseNode node)
+  ParserStackElement (int state, ParseNode node)
     {
       this.state = state;
       this.node  = node;
     }
 
-  public final void setState (ParserState state)
+  public final void setState (int state)
     {
       this.state = state;
     }
 
-  public final ParserState getState ()
+  public final int getState ()
     {
       return state;
     }
@@ -57,6 +62,16 @@ class ParserStackElement implements TimeStamped
       this.stamp = stamp;
     }
 
+  final void setFlatIndex (int index)
+    {
+      flatIndex = index;
+    }
+
+  final int getFlatIndex ()
+    {
+      return flatIndex;
+    }
+
   public String toString ()
     {
       return "stamp: "+stamp+", "+"state: "+state+", "+"node: "+node;
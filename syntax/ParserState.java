@@ -4,7 +4,6 @@
 
 package hlt.language.syntax;
 
-import java.util.HashMap;
 import hlt.language.util.ArrayIndexed;
 
 /**
@@ -18,33 +17,57 @@ import hlt.language.util.ArrayIndexed;
 
 public class ParserState extends ArrayIndexed
 {
-  public ParserState (int index)
+  public ParserState (ParserTables tables, int index)
     {
-      super(GenericParser.states, index);
+      super(tables.states, index);
+      this.tables = tables;
     }
 
-  HashMap actionTable;
-  HashMap gotoTable;
+  /**
+   * The tables this state belongs to.
+   */
+  private final ParserTables tables;
 
   /**
    * An array of arrays of actions.
    */
   ParserAction[][] dynamicActions;
 
-  public final void setTables (HashMap actionTable, HashMap gotoTable)
+  /**
+   * The action to perform in this state whatever the lookahead, or
+   * <tt>null</tt> if it depends on the lookahead.
+   */
+  ParserAction defaultAction;
+
+  /**
+   * Returns the action to perform in this state whatever the lookahead
+   * token, or <tt>null</tt> if there is none. If there is one, it is a
+   * <tt>REDUCE</tt> action, which the parser performs without reading the
+   * lookahead token.
+   */
+  public final ParserAction defaultAction ()
     {
-      this.actionTable = actionTable;
-      this.gotoTable = gotoTable;
+      return defaultAction;
     }
 
+  /**
+   * Returns the action to perform in this state upon the specified terminal,
+   * or <tt>null</tt> if there is none.
+   */
   public final ParserAction getAction (ParserTerminal symbol)
     {      
-      return (ParserAction)actionTable.get(symbol);
+      int action = tables.actionTable.get(index(),symbol.index(),-1);
+      return action < 0 ? null : tables.actions[action];
     }
 
+  /**
+   * Returns the state to go to from this state upon the specified nonterminal,
+   * or <tt>null</tt> if there is none.
+   */
   public final ParserState getGoto (ParserNonTerminal symbol)
     {
-      return (ParserState)gotoTable.get(symbol);
+      int state = tables.gotoTable.get(index(),symbol.index(),-1);
+      return state < 0 ? null : tables.states[state];
     }
 
 }
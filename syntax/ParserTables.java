@@ -0,0 +1,562 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.util.HashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This is the class of the read-only information that is intrinsic to a
+ * generated parser's <i>class</i>: the grammar symbols and rules, the
+ * parsing automaton's states and actions, and its <i>action</i> and
+ * <i>goto</i> tables. Each class generated by <a href="ParserGenerator.html">
+ * <tt>ParserGenerator</tt></a> owns exactly one such object (in its static
+ * field <tt>TABLES</tt>), which it fills in its static initialization
+ * block, and which is then shared by all the parser instances of this
+ * class. Since the tables are no longer static members of <a
+ * href="GenericParser.html"><tt>GenericParser</tt></a>, parsers generated
+ * from different grammars may be loaded and run concurrently in the same
+ * application without interfering with one another.
+ * <p>
+ * The methods of this class that create symbols, rules, actions, states,
+ * and tables are meant only for the generated parser's static initialization.
+ * Once this is completed, a <tt>ParserTables</tt> object is never modified.
+ * <p>
+ * Rather than by code, the tables may also be initialized from a binary
+ * resource written by the parser generator next to the parser's class (see
+ * <tt>load(Class,String)</tt>), possibly mapped into memory (see
+ * <tt>map(Class,String)</tt>).
+ *
+ * @see         GenericParser
+ * @see         ParserGenerator
+ */
+
+public class ParserTables
+{
+  /**
+   * Constructs parser tables for the specified numbers of terminals,
+   * nonterminals, rules, actions, and states.
+   */
+  public ParserTables (int tcount, int ncount, int rcount, int acount, int scount)
+    {
+      terminals = new ParserTerminal[tcount];
+      nonterminals = new ParserNonTerminal[ncount];
+      rules = new ParserRule[rcount];
+      actions = new ParserAction[acount];
+      states = new ParserState[scount];
+    }
+
+  /**
+   * The set of parser terminals.
+   */
+  public final ParserTerminal[] terminals;
+  /**
+   * The set of parser nonterminals.
+   */
+  public final ParserNonTerminal[] nonterminals;
+  /**
+   * The set of parser rules.
+   */
+  public final ParserRule[] rules;
+  /**
+   * The set of parser actions.
+   */
+  public final ParserAction[] actions;
+  /**
+   * The set of parser states.
+   */
+  public final ParserState[] states;
+  /**
+   * The <i>action</i> table, mapping a state's index and a terminal's
+   * index to an action's index.
+   */
+  ParseTable actionTable;
+  /**
+   * The <i>goto</i> table, mapping a state's index and a nonterminal's
+   * index to a state's index.
+   */
+  ParseTable gotoTable;
+  /**
+   * The <i>goto</i> table bypassing unit rules, or <tt>null</tt> if there
+   * is none. This is the same as the <i>goto</i> table except that a goto
+   * to a state whose only action is to reduce a unit rule (<i>i.e.</i>, a
+   * rule <tt>A -> B</tt> with the default semantic action) is replaced by
+   * the goto that this reduction would lead to. It is used only when no
+   * parse tree is built (see <tt>GenericParser.NO_TREE</tt>).
+   */
+  ParseTable unitGotoTable;
+  /**
+   * The table associating identifiers to terminals.
+   */
+  private final HashMap terminalTable = new HashMap();
+  /**
+   * The table associating identifiers to nonterminals.
+   */
+  private final HashMap nonterminalTable = new HashMap();
+
+  /**
+   * Canonical token denoting the end of input.
+   */
+  private ParseNode E_O_I;
+
+  /**
+   * Canonical terminal to identify error tokens.
+   */
+  private ParserTerminal ERROR_SYMBOL;
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       INITIALIZATION  METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  public final void newTerminal
+    (int index, String name, int precedence, int associativity)
+    {
+      name = name.intern();
+      terminalTable.put(name,
+                        new ParserTerminal(this,name,index,precedence,associativity));
+      if (name == "$E_O_I$")
+	E_O_I = new ParseNode(terminals[index]);
+      if (name == "error")
+	ERROR_SYMBOL = terminals[index];
+    }
+
+  public final void newNonTerminal (int index, String name)
+    {
+      nonterminalTable.put(name,new ParserNonTerminal(this,name,index));
+    }
+
+  public final void newRule (int index, int head, int length, int tagPosition)
+    {
+      new ParserRule(this,head,length,index,tagPosition);
+    }
+
+  public final void newRule (int index, int head, int length, int precedence, int associativity)
+    {
+      new ParserRule(this,head,length,index,precedence,associativity);
+    }
+
+  public final void newAction (int index, int type, int info)
+    {
+      new ParserAction(this,type,info,index);
+    }
+
+  public final void newState (int index)
+    {
+      new ParserState(this,index);
+    }
+
+  public final void setActionTable (ParseTable table)
+    {
+      if (actionTable != null)
+        throw new IllegalStateException("action table already set");
+      actionTable = table;
+    }
+
+  public final void setGotoTable (ParseTable table)
+    {
+      if (gotoTable != null)
+        throw new IllegalStateException("goto table already set");
+      gotoTable = table;
+    }
+
+  public final void setUnitGotoTable (ParseTable table)
+    {
+      if (unitGotoTable != null)
+        throw new IllegalStateException("unit goto table already set");
+      unitGotoTable = table;
+    }
+
+  public final void setDefaultAction (int state, int action)
+    {
+      states[state].defaultAction = actions[action];
+    }
+
+  public final void newDynamicActionTable (int state, int size)
+    {
+      states[state].dynamicActions = new ParserAction[size][];
+    }
+
+  public final void newDynamicActions (int state, int index, int size)
+    {
+      states[state].dynamicActions[index] = new ParserAction[size];
+    }
+
+  public final void setDynamicAction
+    (int state, int index, int position, int action)
+    {
+      states[state].dynamicActions[index][position] = actions[action];
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       LOADING         METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * The magic number starting a binary tables resource (<tt>"JACC"</tt>).
+   */
+  public static final int MAGIC = 0x4A414343;
+
+  /**
+   * The version of the binary tables resource format.
+   */
+  public static final int VERSION = 4;
+
+  /**
+   * The size in bytes of a binary tables resource's header.
+   */
+  public static final int HEADER_SIZE = 36;
+
+  /**
+   * Initializes these tables from the binary resource with the specified
+   * name, as found by the specified class (<i>i.e.</i>, normally, the parser's
+   * class, next to which the resource was written by <tt>ParserGenerator</tt>).
+   * <p>
+   * The resource is made of a header of 9 integers (the magic number, the
+   * format version, the numbers of terminals, nonterminals, rules, actions,
+   * and states, the size in bytes of the names section, and the number of
+   * integers of the data section), followed by the names section (the UTF-8
+   * encoded names of the terminals then of the nonterminals, padded to a
+   * multiple of 4 bytes), and by the data section (all the integers
+   * describing the symbols, rules, actions, states' default actions, and
+   * tables - the unit goto table being preceded by a flag telling whether
+   * it is present - in this order).
+   * The whole resource is read at once, and each table array is then
+   * transferred with a single bulk get.
+   */
+  public final void load (Class c, String name) throws IOException
+    {
+      InputStream in = c.getResourceAsStream(name);
+      if (in == null)
+        throw new IOException("Missing parser tables resource: "+name);
+
+      try
+        {
+          initialize(ByteBuffer.wrap(in.readAllBytes()),name,false);
+        }
+      finally
+        {
+          in.close();
+        }
+    }
+
+  /**
+   * Same as <tt>load(Class,String)</tt>, except that, if the resource is a
+   * plain file (rather than, <i>e.g.</i>, an entry in a jar), it is mapped
+   * into memory and the <i>action</i> and <i>goto</i> tables are read in
+   * place through read-only views of the mapping rather than copied into
+   * the heap. Thus, all the processes running the same parser share the
+   * same physical copy of these tables in the system's page cache. The
+   * rows shared by several states (see <tt>ParserGenerator.compressTables()</tt>)
+   * are stored only once in the mapped file as well.
+   */
+  public final void map (Class c, String name) throws IOException
+    {
+      URL url = c.getResource(name);
+      if (url == null)
+        throw new IOException("Missing parser tables resource: "+name);
+
+      if (!"file".equals(url.getProtocol()))
+        {
+          load(c,name);
+          return;
+        }
+
+      File file;
+      try
+        {
+          file = new File(url.toURI());
+        }
+      catch (URISyntaxException e)
+        {
+          file = new File(url.getPath());
+        }
+
+      map(file);
+    }
+
+  /**
+   * Initializes these tables from the specified binary tables file by
+   * mapping it into memory (see <tt>map(Class,String)</tt>).
+   */
+  public final void map (File file) throws IOException
+    {
+      FileChannel channel = new RandomAccessFile(file,"r").getChannel();
+
+      try
+        {
+          // the mapping remains valid once the channel is closed:
+          initialize(channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size()),
+                     file.getPath(),true);
+        }
+      finally
+        {
+          channel.close();
+        }
+    }
+
+  /**
+   * Initializes these tables from the specified buffer containing a binary
+   * tables resource of the specified name. If <tt>mapped</tt> is <tt>true</tt>,
+   * the <i>action</i> and <i>goto</i> tables are views of the buffer.
+   */
+  private final void initialize (ByteBuffer buffer, String name, boolean mapped)
+    throws IOException
+    {
+      if (buffer.getInt() != MAGIC)
+        throw new IOException("Bad parser tables resource: "+name);
+      int version = buffer.getInt();
+      if (version != VERSION)
+        throw new IOException("Unsupported parser tables resource version "+version+
+                              " (expected "+VERSION+"): "+name);
+      if (buffer.getInt() != terminals.length
+          || buffer.getInt() != nonterminals.length
+          || buffer.getInt() != rules.length
+          || buffer.getInt() != actions.length
+          || buffer.getInt() != states.length)
+        throw new IOException("Parser tables resource does not match its parser: "+name);
+
+      int namesSize = buffer.getInt();
+      int dataSize = buffer.getInt();
+
+      byte[] names = new byte[namesSize];
+      buffer.get(names);
+      buffer.position(HEADER_SIZE+((namesSize+3)&~3));
+
+      IntBuffer data = buffer.slice().asIntBuffer();
+      if (data.remaining() < dataSize)
+        throw new IOException("Truncated parser tables resource: "+name);
+      data.limit(dataSize);
+
+      int namePosition = 0;
+
+      for (int i=0; i<terminals.length; i++)
+        {
+          int length = data.get();
+          newTerminal(i,new String(names,namePosition,length,StandardCharsets.UTF_8),
+                      data.get(),data.get());
+          namePosition += length;
+        }
+
+      for (int i=0; i<nonterminals.length; i++)
+        {
+          int length = data.get();
+          newNonTerminal(i,new String(names,namePosition,length,StandardCharsets.UTF_8).intern());
+          namePosition += length;
+        }
+
+      for (int i=0; i<rules.length; i++)
+        {
+          int head = data.get();
+          int length = data.get();
+          boolean isOperator = data.get() != 0;
+          int info1 = data.get();
+          int info2 = data.get();
+          if (isOperator)
+            newRule(i,head,length,info1);
+          else
+            newRule(i,head,length,info1,info2);
+        }
+
+      for (int i=0; i<actions.length; i++)
+        newAction(i,data.get(),data.get());
+
+      for (int i=0; i<states.length; i++)
+        newState(i);
+
+      for (int i=0; i<states.length; i++)
+        {
+          int action = data.get();
+          if (action != 0)
+            setDefaultAction(i,action);
+        }
+
+      if (mapped)
+        {
+          setActionTable(MappedCompressedTable.read(data));
+          setGotoTable(MappedCompressedTable.read(data));
+          if (data.get() != 0)
+            setUnitGotoTable(MappedCompressedTable.read(data));
+        }
+      else
+        {
+          setActionTable(CompressedTable.read(data));
+          setGotoTable(CompressedTable.read(data));
+          if (data.get() != 0)
+            setUnitGotoTable(CompressedTable.read(data));
+        }
+
+      for (int n=data.get(); n-->0;)
+        {
+          int state = data.get();
+          int size = data.get();
+          newDynamicActionTable(state,size);
+          for (int j=0; j<size; j++)
+            {
+              int count = data.get();
+              newDynamicActions(state,j,count);
+              for (int k=0; k<count; k++)
+                setDynamicAction(state,j,k,data.get());
+            }
+        }
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       ACCESSING       METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Returns the terminal with the specified name, or <tt>null</tt> if
+   * there is none.
+   */
+  public final ParserTerminal terminal (String name)
+    {
+      return (ParserTerminal)terminalTable.get(name.intern());
+    }
+
+  /**
+   * Returns the nonterminal with the specified name, or <tt>null</tt> if
+   * there is none.
+   */
+  public final ParserNonTerminal nonterminal (String name)
+    {
+      return (ParserNonTerminal)nonterminalTable.get(name.intern());
+    }
+
+  /**
+   * Returns the end of input token.
+   */
+  public final ParseNode eoi ()
+    {
+      return E_O_I;
+    }
+
+  /**
+   * Returns the terminal identifying error tokens.
+   */
+  public final ParserTerminal errorSymbol ()
+    {
+      return ERROR_SYMBOL;
+    }
+
+  /**
+   * Returns the initial parse state.
+   */
+  final ParserState initialState ()
+    {
+      return states[0];
+    }
+
+  /**
+   * Returns the canonical error action.
+   */
+  final ParserAction errorAction ()
+    {
+      return actions[0];
+    }
+
+  /**
+   * Returns the canonical accept action.
+   */
+  final ParserAction acceptAction ()
+    {
+      return actions[1];
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       TOKENIZING      METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Returns an error token whose <tt>svalue</tt> is set to the supplied string.
+   */
+  public final ParseNode error (String errval)
+    {
+      ParseNode ERROR = new ParseNode(ERROR_SYMBOL);
+      ERROR.setSvalue(errval);
+      return ERROR;
+    }
+
+  /**
+   * Returns an error token whose <tt>svalue</tt> is set to the supplied ParseNode's
+   * printed value, and whose span is set to that of the supplied node.
+   */
+  public final ParseNode error (ParseNode node)
+    {
+      if (node instanceof DynamicToken)
+	{
+          ((DynamicToken)node).setOriginal(node.copy());
+          node.setSvalue(node.toString());
+          node.setSymbol(ERROR_SYMBOL);
+          return node;
+        }
+
+      ParseNode ERROR = new ParseNode(ERROR_SYMBOL);
+
+      ERROR.setSvalue(node.toString());
+      ERROR.setSpan(node);
+      return ERROR;
+    }
+
+  public final ParseNode symbolToken (String symbol, String token)
+    {
+      ParserTerminal term = terminal(symbol);
+      return term == null ? error(symbol + "( " + token + ")")
+			  : new ParseNode(term,token.intern());
+    }
+
+  public final ParseNode numberToken (String symbol, double num)
+    {
+      ParserTerminal term = terminal(symbol);
+      return term == null ? error(symbol + "( " + num + ")")
+			  : new ParseNode(term,num);
+    }
+
+  public final ParseNode numberToken (String symbol, int num)
+    {
+      ParserTerminal term = terminal(symbol);
+      return term == null ? error(symbol + "( " + num + ")")
+			  : new ParseNode(term,num);
+    }
+
+  public final ParseNode literalToken (String symbol)
+    {
+      ParserTerminal term = terminal(symbol);
+      return term == null ? error(symbol)
+			  : new ParseNode(term);
+    }
+
+  /**
+   * Same as <tt>literalToken(String)</tt>, except that an unknown symbol
+   * yields an unknown literal token rather than an error token if
+   * <tt>admitsUnknown</tt> is <tt>true</tt>. This is used by a <a
+   * href="DynamicParser.html"><tt>DynamicParser</tt></a> for tokens that
+   * may be dynamic operators.
+   */
+  public final ParseNode literalToken (String symbol, boolean admitsUnknown)
+    {
+      ParserTerminal term = terminal(symbol);
+      return term == null ? (admitsUnknown ? new ParseNode(symbol.intern())
+					   : error(symbol))
+			  : new ParseNode(term);
+    }
+}
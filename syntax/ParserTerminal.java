@@ -17,9 +17,10 @@ package hlt.language.syntax;
 
 public class ParserTerminal extends ParserSymbol
 {
-  public ParserTerminal (String name, int index, int precedence, int associativity)
+  public ParserTerminal (ParserTables tables, String name, int index,
+                         int precedence, int associativity)
     {
-      super(name,GenericParser.terminals,index);
+      super(name,tables.terminals,index);
       _precedence = precedence;
       _associativity = associativity;
     }
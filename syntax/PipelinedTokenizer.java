@@ -0,0 +1,418 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This is the class of tokenizers running another tokenizer on a separate
+ * thread, so that tokenizing and parsing proceed in parallel. The tokens
+ * read by the lexing thread are passed to the parser through a bounded
+ * single-producer/single-consumer ring buffer, without locking: each side
+ * owns its index, which it publishes to the other side once per batch of
+ * tokens rather than once per token. Each token is passed along with the
+ * line number of the underlying tokenizer after reading it, so that
+ * <tt>lineNumber()</tt> is that of the token last returned by
+ * <tt>nextToken()</tt>, as it would be without pipelining.
+ * <p>
+ * The lexing thread is started by the first call to <tt>nextToken()</tt>
+ * and stops after reading the end of input, which is then returned by all
+ * further calls. An exception thrown by the underlying tokenizer is thrown
+ * by <tt>nextToken()</tt> when the parser reaches it. Setting the reader
+ * stops the lexing thread, waiting until it has finished reading its current
+ * token, and discards the tokens read ahead. Since switch tokens (see
+ * <tt>GenericParser.setSwitchToken(ParseNode)</tt>) are handled by the
+ * parser, they are not affected by pipelining.
+ * <p>
+ * A parse may end before the end of input is read (<i>e.g.</i>, upon the
+ * first syntax error when not recovering from errors, as is the case for the
+ * generated <tt>parse<i>Root</i></tt> and <tt>stream<i>Root</i></tt> methods).
+ * The lexing thread then stays blocked once the ring buffer is full, holding
+ * on to the reader and the tokens read ahead. So, callers must call <tt>close()</tt>
+ * once they are done with this tokenizer, whatever the outcome of the parse.
+ * This stops the lexing thread in the same way as setting the reader does.
+ * <p>
+ * <b>NB:</b> since tokens are published by batches, this is meant for
+ * reading files or other inputs that do not wait for a user's input; and
+ * since the underlying tokenizer runs ahead of the parser, it must not depend
+ * on the parser's state (<i>e.g.</i>, on operators declared while parsing
+ * with a <a href="DynamicParser.html"><tt>DynamicParser</tt></a>).
+ *
+ * @see         Tokenizer
+ */
+
+public class PipelinedTokenizer implements Tokenizer
+{
+  /**
+   * The default capacity of the ring buffer.
+   */
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  /**
+   * The default number of tokens published at once.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 64;
+
+  /**
+   * The number of times a side spins before parking while waiting for the
+   * other side.
+   */
+  private static final int SPINS = 256;
+
+  /**
+   * The tokenizer run by the lexing thread.
+   */
+  private final Tokenizer tokenizer;
+
+  /**
+   * The ring buffer's tokens and line numbers.
+   */
+  private final ParseNode[] tokens;
+  private final int[] lines;
+  private final int mask;
+  private final int batchSize;
+
+  /**
+   * The index of the next token to be read by the parser; written only
+   * by the parser's thread.
+   */
+  private final AtomicLong head = new AtomicLong();
+
+  /**
+   * The index of the next token to be written by the lexing thread; written
+   * only by the lexing thread.
+   */
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * The exception thrown by the underlying tokenizer; this is published
+   * along with a <tt>null</tt> token.
+   */
+  private volatile Throwable failure;
+
+  /**
+   * Set to stop the lexing thread.
+   */
+  private volatile boolean stopped;
+
+  /**
+   * Set by the lexing thread while it is parked waiting for room in the
+   * ring buffer, so that the parser's thread unparks it upon freeing some.
+   */
+  private volatile boolean lexerParked;
+
+  private Thread lexer;
+
+  /**
+   * The parser thread's view of the ring: its unpublished head, its latest
+   * view of the tail, the line number of the latest token, and the end of
+   * input if it has been read.
+   */
+  private long localHead;
+  private long knownTail;
+  private int lineNumber;
+  private ParseNode eoi;
+
+  /**
+   * Constructs a pipelined tokenizer running the specified one, with the
+   * default capacity and batch size.
+   */
+  public PipelinedTokenizer (Tokenizer tokenizer)
+    {
+      this(tokenizer,DEFAULT_CAPACITY,DEFAULT_BATCH_SIZE);
+    }
+
+  /**
+   * Constructs a pipelined tokenizer running the specified one, with a ring
+   * buffer of the specified capacity whose tokens are published by the specified
+   * number at a time (both are rounded to powers of 2).
+   */
+  public PipelinedTokenizer (Tokenizer tokenizer, int capacity, int batchSize)
+    {
+      this.tokenizer = tokenizer;
+      int size = Integer.highestOneBit(Math.max(2,capacity-1))<<1;
+      tokens = new ParseNode[size];
+      lines = new int[size];
+      mask = size-1;
+      this.batchSize = Integer.highestOneBit(Math.max(1,Math.min(batchSize,size/2)));
+      lineNumber = tokenizer.lineNumber();
+    }
+
+  /**
+   * Returns the next token read by the lexing thread, waiting for it if
+   * need be.
+   */
+  public final ParseNode nextToken () throws IOException
+    {
+      if (eoi != null)
+        return eoi;
+
+      if (lexer == null)
+        start();
+
+      if (localHead == knownTail)
+        {
+          publishHead();
+          awaitTokens();
+        }
+
+      int slot = (int)localHead & mask;
+      ParseNode token = tokens[slot];
+      tokens[slot] = null;
+      lineNumber = lines[slot];
+      localHead++;
+
+      if ((localHead & (batchSize-1)) == 0 || localHead == knownTail)
+        publishHead();
+
+      if (token == null)
+        rethrow();
+
+      if (token.isEOI())
+        eoi = token;
+
+      return token;
+    }
+
+  /**
+   * Stops the lexing thread, discards the tokens read ahead, and sets the
+   * underlying tokenizer's reader to the specified one.
+   */
+  public final void setReader (Reader reader)
+    {
+      stop();
+      tokenizer.setReader(reader);
+      lineNumber = tokenizer.lineNumber();
+    }
+
+  public final Reader getReader ()
+    {
+      return tokenizer.getReader();
+    }
+
+  /**
+   * Stops the lexing thread, waiting until it has finished reading its
+   * current token, and discards the tokens read ahead. This must be called
+   * once this tokenizer is no longer needed, even if the parse has been
+   * abandoned before reading the end of input. The underlying tokenizer is
+   * left as it is: this tokenizer may be used again only once its reader
+   * has been set.
+   */
+  public final void close ()
+    {
+      stop();
+    }
+
+  /**
+   * Returns the line number of the underlying tokenizer after it read the
+   * token last returned by <tt>nextToken()</tt>.
+   */
+  public final int lineNumber ()
+    {
+      return lineNumber;
+    }
+
+  /**
+   * Returns the underlying tokenizer.
+   */
+  public final Tokenizer tokenizer ()
+    {
+      return tokenizer;
+    }
+
+  public String toString ()
+    {
+      return "line "+lineNumber();
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       THREADING       METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  private final void start ()
+    {
+      stopped = false;
+      lexer = new Thread(new Runnable()
+        {
+          public void run ()
+            {
+              produce();
+            }
+        },"PipelinedTokenizer");
+      lexer.setDaemon(true);
+      lexer.start();
+    }
+
+  /**
+   * Stops the lexing thread and empties the ring buffer.
+   */
+  private final void stop ()
+    {
+      if (lexer != null)
+        {
+          stopped = true;
+          LockSupport.unpark(lexer);
+
+          boolean interrupted = false;
+          for (;;)
+            try
+              {
+                lexer.join();
+                break;
+              }
+            catch (InterruptedException e)
+              {
+                interrupted = true;
+              }
+          if (interrupted)
+            Thread.currentThread().interrupt();
+
+          lexer = null;
+        }
+
+      Arrays.fill(tokens,null);
+      head.set(0);
+      tail.set(0);
+      localHead = knownTail = 0;
+      failure = null;
+      eoi = null;
+    }
+
+  /**
+   * This is run by the lexing thread: it reads tokens into the ring buffer
+   * until the end of input, an exception, or being stopped.
+   */
+  private final void produce ()
+    {
+      long localTail = tail.get();
+      long knownHead = head.get();
+
+      while (!stopped)
+        {
+          if (localTail - knownHead == tokens.length)
+            {
+              tail.lazySet(localTail);
+              knownHead = awaitSpace(localTail);
+              if (stopped)
+                return;
+            }
+
+          int slot = (int)localTail & mask;
+          ParseNode token = null;
+
+          try
+            {
+              token = tokenizer.nextToken();
+            }
+          catch (Throwable e)
+            {
+              failure = e;
+            }
+
+          tokens[slot] = token;
+          lines[slot] = tokenizer.lineNumber();
+          localTail++;
+
+          if (token == null || token.isEOI())
+            {
+              tail.lazySet(localTail);
+              return;
+            }
+
+          if ((localTail & (batchSize-1)) == 0)
+            tail.lazySet(localTail);
+        }
+    }
+
+  /**
+   * Publishes the parser's head, and unparks the lexing thread if it is
+   * waiting for room in the ring buffer. The head is written with a volatile
+   * store so that it cannot be missed by a lexing thread about to park (see
+   * <tt>awaitSpace(long)</tt>).
+   */
+  private final void publishHead ()
+    {
+      head.set(localHead);
+      if (lexerParked)
+        LockSupport.unpark(lexer);
+    }
+
+  /**
+   * Waits until the lexing thread has published tokens past <tt>localHead</tt>.
+   */
+  private final void awaitTokens () throws IOException
+    {
+      for (int spins=0; (knownTail = tail.get()) == localHead; spins++)
+        {
+          if (!lexer.isAlive() && (knownTail = tail.get()) == localHead)
+            throw new IOException("Lexing thread stopped");
+
+          pause(spins);
+
+          if (Thread.interrupted())
+            throw new InterruptedIOException();
+        }
+    }
+
+  /**
+   * Waits until the parser has freed some room in the ring buffer, or until
+   * the lexing thread is stopped, and returns its latest view of the head.
+   * After spinning for a while, the lexing thread parks with no timeout
+   * until it is unparked by the parser's thread upon publishing its head
+   * (see <tt>publishHead()</tt>) or by <tt>stop()</tt>.
+   */
+  private final long awaitSpace (long localTail)
+    {
+      long knownHead;
+
+      for (int spins=0; localTail - (knownHead = head.get()) == tokens.length && !stopped; spins++)
+        if (spins < SPINS)
+          Thread.onSpinWait();
+        else
+          {
+            lexerParked = true;
+            // check again once the flag is set, lest the head be published
+            // in between without unparking this thread:
+            if (localTail - head.get() == tokens.length && !stopped)
+              LockSupport.park(this);
+            lexerParked = false;
+          }
+
+      return knownHead;
+    }
+
+  private static final void pause (int spins)
+    {
+      if (spins < SPINS)
+        Thread.onSpinWait();
+      else
+        LockSupport.parkNanos(50000L);
+    }
+
+  /**
+   * Throws the exception published by the lexing thread.
+   */
+  private final void rethrow () throws IOException
+    {
+      Throwable e = failure;
+
+      if (e instanceof IOException)
+        throw (IOException)e;
+      if (e instanceof RuntimeException)
+        throw (RuntimeException)e;
+      if (e instanceof java.lang.Error)
+        throw (java.lang.Error)e;
+
+      throw new IOException(e);
+    }
+}
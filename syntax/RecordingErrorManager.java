@@ -0,0 +1,58 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.util.ArrayList;
+import hlt.language.util.Error;
+
+/**
+ * This is the class of error managers that record the errors reported to
+ * them rather than printing them. It is used for the parses performed by a
+ * <a href="ParseService.html"><tt>ParseService</tt></a> and for the chunks
+ * parsed by a <a href="ParallelParser.html"><tt>ParallelParser</tt></a>.
+ */
+
+final class RecordingErrorManager extends ErrorManager
+{
+  /**
+   * The errors reported so far.
+   */
+  final ArrayList errors = new ArrayList();
+
+  /**
+   * The warnings and deprecation warnings reported so far.
+   */
+  final ArrayList warnings = new ArrayList();
+
+  public final void reportError (Error error)
+    {
+      countError();
+      errors.add(error);
+    }
+
+  public final void reportWarning (Error error)
+    {
+      countWarning();
+      warnings.add(error);
+    }
+
+  public final void reportDeprecated (Error error)
+    {
+      countDeprecated();
+      warnings.add(error);
+    }
+
+  public final void tallyErrors ()
+    {
+    }
+
+  public final void tallyWarnings ()
+    {
+    }
+
+  public final void tallyDeprecateds ()
+    {
+    }
+}
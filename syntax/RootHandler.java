@@ -0,0 +1,26 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.io.IOException;
+
+/**
+ * This is the interface of the objects to which a parser hands each root
+ * it parses when streaming a sequence of roots (see <tt>GenericParser.stream(ParseNode,RootHandler)</tt>
+ * and the <tt>stream<i>Root</i>(Reader,RootHandler)</tt> methods generated
+ * for each <tt>%root</tt> declaration).
+ *
+ * @see         GenericParser
+ */
+
+public interface RootHandler
+{
+  /**
+   * This is called with each root as soon as it has been parsed. The root
+   * is then dropped from the parser's stack, so that it may be reclaimed
+   * unless it is retained by this method.
+   */
+  public void handleRoot (ParseNode root) throws IOException;
+}
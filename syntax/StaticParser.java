@@ -21,6 +21,14 @@ import java.io.IOException;
  */
 public abstract class StaticParser extends GenericParser
 {
+  /**
+   * Constructs a parser using the specified tables.
+   */
+  public StaticParser (ParserTables tables)
+    {
+      super(tables);
+    }
+
   /**
    * The following are methods used for parsing.
    */
@@ -40,13 +48,14 @@ public abstract class StaticParser extends GenericParser
   /**
    * Sets the appropriate parser action for the current token in the current
    * state. If none exists, the parser action is set to the canonical error
-   * action.
+   * action. If the current state has a default action, this is used without
+   * reading the current token.
    */
   final void getParseAction () throws IOException
     {
-      parseAction = parseState.getAction((ParserTerminal)tokenNode().symbol());
+      parseAction = parseState.defaultAction;
       if (parseAction == null)
-	parseAction = errorAction();
+        parseAction = lookupAction(parseState,tokenNode().symbol());
     }
 
   final void trace (ParserAction a) throws IOException
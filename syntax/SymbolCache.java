@@ -0,0 +1,90 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+/**
+ * This is the class of bounded caches of token values used instead of
+ * <tt>String.intern()</tt> by the int-coded token factory methods of <a
+ * href="GenericParser.html"><tt>GenericParser</tt></a>. Such a cache is a
+ * direct-mapped table of strings: looking up a character sequence costs
+ * hashing its characters and comparing them with those of at most one
+ * string, and allocates nothing when the sequence is already cached. A
+ * cached string is replaced when another value maps to the same slot, so
+ * the cache never grows beyond its capacity.
+ * <p>
+ * Unlike the JVM's string table, a cache is owned by a single parser and
+ * needs no synchronization - it is not thread-safe. Also, unlike
+ * <tt>String.intern()</tt>, it does not guarantee that equal values are
+ * identical strings (even less so that they are identical to string
+ * literals): values must be compared with <tt>equals</tt>.
+ *
+ * @see         GenericParser
+ */
+
+public final class SymbolCache
+{
+  /**
+   * The default capacity of a cache.
+   */
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  private final String[] entries;
+  private final int mask;
+
+  /**
+   * Constructs a cache with the default capacity.
+   */
+  public SymbolCache ()
+    {
+      this(DEFAULT_CAPACITY);
+    }
+
+  /**
+   * Constructs a cache with the specified capacity, rounded up to a power
+   * of 2.
+   */
+  public SymbolCache (int capacity)
+    {
+      int size = 1;
+      while (size < capacity)
+        size <<= 1;
+
+      entries = new String[size];
+      mask = size-1;
+    }
+
+  /**
+   * Returns the cached string equal to the specified characters, caching
+   * a new string if there is none.
+   */
+  public final String get (CharSequence chars)
+    {
+      int length = chars.length();
+      int hash = 0;
+
+      // this is the same hash function as String.hashCode():
+      for (int i=0; i<length; i++)
+        hash = 31*hash + chars.charAt(i);
+
+      int slot = (hash ^ (hash >>> 16)) & mask;
+      String entry = entries[slot];
+
+      if (entry != null
+          && entry.length() == length
+          && entry.hashCode() == hash
+          && entry.contentEquals(chars))
+        return entry;
+
+      return entries[slot] = chars.toString();
+    }
+
+  /**
+   * Empties this cache.
+   */
+  public final void clear ()
+    {
+      java.util.Arrays.fill(entries,null);
+    }
+}
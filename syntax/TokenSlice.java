@@ -0,0 +1,141 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+/**
+ * This is the class of token values that are slices of a shared input
+ * buffer, such as that of an <a href="AbstractMappedFileTokenizer.html">
+ * <tt>AbstractMappedFileTokenizer</tt></a>. Such a value is turned into
+ * a <tt>String</tt> only when needed (see <tt>toString()</tt> and
+ * <tt>ParseNode.svalue()</tt>), and only once. Its hash code is that
+ * of the equal <tt>String</tt>, and it is computed, as is equality with
+ * another slice (see <tt>equals(Object)</tt>) or any other character
+ * sequence (see <tt>contentEquals(CharSequence)</tt>), directly on the
+ * buffer.
+ * <p>
+ * <b>NB:</b> a slice refers to its buffer, which thus may not be modified
+ * while the slice is in use. Conversely, the buffer is kept reachable as
+ * long as some slice of it is not materialized.
+ *
+ * @see         ParseNode
+ * @see         AbstractMappedFileTokenizer
+ */
+
+public final class TokenSlice implements CharSequence
+{
+  private final char[] buffer;
+  private final int offset;
+  private final int length;
+
+  /**
+   * The string form of this slice once it has been materialized, and its
+   * hash code once it has been computed.
+   */
+  private String string;
+  private int hash;
+
+  /**
+   * Constructs a slice of the <tt>length</tt> characters of the specified
+   * buffer starting at the specified offset.
+   */
+  public TokenSlice (char[] buffer, int offset, int length)
+    {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+    }
+
+  public final int length ()
+    {
+      return length;
+    }
+
+  public final char charAt (int index)
+    {
+      if (index < 0 || index >= length)
+        throw new IndexOutOfBoundsException("Index: "+index+", Length: "+length);
+
+      return buffer[offset+index];
+    }
+
+  public final CharSequence subSequence (int start, int end)
+    {
+      if (start < 0 || end > length || start > end)
+        throw new IndexOutOfBoundsException("Start: "+start+", End: "+end+", Length: "+length);
+
+      return new TokenSlice(buffer,offset+start,end-start);
+    }
+
+  /**
+   * Returns the string made of the characters of this slice, creating it
+   * the first time.
+   */
+  public final String toString ()
+    {
+      if (string == null)
+        string = new String(buffer,offset,length);
+      return string;
+    }
+
+  /**
+   * Returns the same hash code as that of the equal <tt>String</tt>.
+   */
+  public final int hashCode ()
+    {
+      int h = hash;
+
+      if (h == 0 && length > 0)
+        {
+          for (int i=offset; i<offset+length; i++)
+            h = 31*h + buffer[i];
+          hash = h;
+        }
+
+      return h;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff the specified object is a slice made of
+   * the same characters as this one.
+   */
+  public final boolean equals (Object other)
+    {
+      if (this == other)
+        return true;
+
+      if (!(other instanceof TokenSlice))
+        return false;
+
+      TokenSlice that = (TokenSlice)other;
+
+      if (length != that.length || hashCode() != that.hashCode())
+        return false;
+
+      for (int i=0; i<length; i++)
+        if (buffer[offset+i] != that.buffer[that.offset+i])
+          return false;
+
+      return true;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff this slice is made of the same characters as
+   * the specified sequence (which may be a <tt>String</tt>).
+   */
+  public final boolean contentEquals (CharSequence chars)
+    {
+      if (chars instanceof TokenSlice)
+        return equals(chars);
+
+      if (chars == null || chars.length() != length)
+        return false;
+
+      for (int i=0; i<length; i++)
+        if (buffer[offset+i] != chars.charAt(i))
+          return false;
+
+      return true;
+    }
+}
@@ -0,0 +1,24 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import java.io.Reader;
+
+/**
+ * This is the interface of objects creating tokenizers for parts of an
+ * input, as needed by a <a href="ParallelParser.html"><tt>ParallelParser</tt></a>.
+ *
+ * @see         ParallelParser
+ */
+
+public interface TokenizerFactory
+{
+  /**
+   * Returns a new tokenizer reading from the specified reader, whose first
+   * line is line number <tt>firstLine</tt> of the whole input. The locations
+   * of the tokens it returns must be numbered accordingly.
+   */
+  public Tokenizer newTokenizer (Reader reader, int firstLine);
+}
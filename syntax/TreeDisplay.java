@@ -88,14 +88,13 @@ public class TreeDisplay extends JFrame
           ParseNode parseNode = (ParseNode)treeNode.getUserObject();
           tree.makeVisible(new TreePath(treeNode.getPath()));
 
-          if (parseNode.children() != null)
-            for (int i=0; i<parseNode.children().size(); i++)
-              {
-                DefaultMutableTreeNode childTreeNode
-                  = new DefaultMutableTreeNode(parseNode.child(i+1));
-                treeModel.insertNodeInto(childTreeNode,treeNode,i);
-                treeNodes.push(childTreeNode);
-              }
+          for (int i=0; i<parseNode.numberOfChildren(); i++)
+            {
+              DefaultMutableTreeNode childTreeNode
+                = new DefaultMutableTreeNode(parseNode.child(i+1));
+              treeModel.insertNodeInto(childTreeNode,treeNode,i);
+              treeNodes.push(childTreeNode);
+            }
         }
     }
 }
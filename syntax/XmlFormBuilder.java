@@ -0,0 +1,35 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import org.jdom2.Element;
+
+/**
+ * This is the interface of the objects building the XML forms specified by
+ * compiled <a href="XmlInfo.html"><tt>XmlInfo</tt></a> annotations. For
+ * each homomorphic annotation of a grammar (see <tt>XmlInfo.isHomomorphic()</tt>),
+ * the <a href="ParserGenerator.html"><tt>ParserGenerator</tt></a> generates
+ * a specialized method building the annotated node's element directly,
+ * with its name, namespace, attributes, and children's wrappers resolved at
+ * generation time; the generated parser registers a builder dispatching on
+ * the annotations to these methods (see <tt>XmlInfo.setFormBuilder(XmlFormBuilder,int)</tt>).
+ * The forms thus built are the same as those built by interpreting the
+ * annotations (see <tt>XmlInfo.createXmlForm(ParseNode,Element)</tt>).
+ *
+ * @see         XmlInfo
+ * @see         ParserGenerator
+ */
+
+public interface XmlFormBuilder
+{
+  /**
+   * Returns the element specified by the compiled annotation having the
+   * specified code for the specified node, in the namespace context of the
+   * specified root element. The code of the annotation of the rule at
+   * index <tt>i</tt> is <tt>i</tt>, and that of the terminal at index
+   * <tt>i</tt> is <tt>-1-i</tt>.
+   */
+  public Element createXmlForm (int form, ParseNode node, Element root);
+}
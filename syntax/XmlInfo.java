@@ -102,6 +102,15 @@ public class XmlInfo
    */
   private XmlTextInfo[][] _textInfos = null;
 
+  /**
+   * <tt>_formBuilder</tt>, when not <tt>null</tt>, is the builder of
+   * the generated code compiled from this <tt>XmlInfo</tt>, and
+   * <tt>_formCode</tt> is the code of this <tt>XmlInfo</tt> for it
+   * (see <a href="XmlFormBuilder.html"><tt>XmlFormBuilder</tt></a>).
+   */
+  private XmlFormBuilder _formBuilder = null;
+  private int _formCode;
+
   //////////////////////////////////////////////////////////////////////
 
   // The constructors:
@@ -177,6 +186,23 @@ public class XmlInfo
       return this;
     }
 
+  public final boolean isCompiled ()
+    {
+      return _formBuilder != null;
+    }
+
+  /**
+   * Sets the builder of the code compiled from this <tt>XmlInfo</tt>,
+   * which is then used by <tt>createXmlForm(ParseNode,Element)</tt>
+   * instead of interpreting it, with the specified code.
+   */
+  public XmlInfo setFormBuilder (XmlFormBuilder builder, int code)
+    {
+      _formBuilder = builder;
+      _formCode = code;
+      return this;
+    }
+
   public final String nsPrefix ()
     {
       return _nsPrefix;
@@ -338,6 +364,42 @@ public class XmlInfo
       return false;
     }
 
+  /**
+   * <tt>isHomomorphic()</tt> returns <tt>true</tt> iff the XML form
+   * specified by this <tt>XmlInfo</tt> only depends on the XML forms of
+   * the children it lists as wholes (<i>i.e.</i>, iff this specifies a <a
+   * href="xml/XmlAnnotationDoc/XmlAnnotationSpecification.html#homo">homomorphic
+   * tree transduction</a>): it has no XML tree path into a child's XML
+   * form, no attribute reference, and no attribute whose value is taken
+   * from a child's XML form. Such a form may be written out as the
+   * children's forms are being written (see <a href="XmlStreamSerializer.html">
+   * <tt>XmlStreamSerializer</tt></a>).
+   */
+  public final boolean isHomomorphic ()
+    {
+      if (hasXmlPaths() || hasAttributeRefs())
+        return false;
+
+      if (hasAttributes())
+        for (int i=0; i<_attributes.length; i++)
+          {
+            XmlAttributeInfo a = _attributes[i];
+
+            if (a.hasTerminalValue() || a.hasLiteralValue())
+              continue;
+
+            if (!a.hasTextForm())
+              return false;
+
+            XmlTextInfoArg[] args = a.specialForm().textArgs();
+            for (int j=0; j<args.length; j++)
+              if (!args[j].isLiteral())
+                return false;
+          }
+
+      return true;
+    }
+
   ////////////////////////////////////////////////////////////////////////
 
   /**
@@ -409,9 +471,10 @@ public class XmlInfo
 
     // generate the setXmlInfo instruction for terminals[index] to
     // construct a new XmlInfo object with the info's local name and
-    // namespace prefix:
+    // namespace prefix (and the builder of its compiled code if any):
     g.pl("        terminals["+index+"].setXmlInfo(new XmlInfo(\""+_localName+"\""
-         +(_nsPrefix == "" ? "" : ",\""+_nsPrefix+"\"")+"));");
+         +(_nsPrefix == "" ? "" : ",\""+_nsPrefix+"\"")+")"
+         +compiledFormSetting(-1-index)+");");
 
     if (hasAttributes())
       {
@@ -482,9 +545,10 @@ public class XmlInfo
 
     // generate the setXmlInfo instruction for rules[index] to
     // construct a new XmlInfo object with the info's local name and
-    // namespace prefix:
+    // namespace prefix (and the builder of its compiled code if any):
     g.pl("        rules["+index+"].setXmlInfo(new XmlInfo(\""+_localName+"\""
-         +(_nsPrefix == "" ? "" : ",\""+_nsPrefix+"\"")+"));");
+         +(_nsPrefix == "" ? "" : ",\""+_nsPrefix+"\"")+")"
+         +compiledFormSetting(index)+");");
 
     // if there are attributes or children, generate the instructions
     // to add those to this new XmlInfo object:
@@ -582,6 +646,130 @@ public class XmlInfo
       }
     g.pl("      }");
   }
+
+  /**
+   * Returns the code setting the builder of the code compiled from this
+   * <tt>XmlInfo</tt> with the specified code if it is homomorphic (see
+   * <tt>generateXmlFormMethod(ParserGenerator,String)</tt>), or the empty
+   * string otherwise.
+   */
+  private final String compiledFormSetting (int code)
+    {
+      if (!isHomomorphic())
+        return "";
+
+      return ".setFormBuilder("+FORM_BUILDER_CLASS+".BUILDER,"+code+")";
+    }
+
+  /**
+   * The name of the class of the <a href="XmlFormBuilder.html"><tt>XmlFormBuilder</tt></a>
+   * generated in a parser to build the XML forms of its homomorphic annotations.
+   */
+  static final String FORM_BUILDER_CLASS = "$XmlForms$";
+
+  /**
+   * Uses the specified <a
+   * href="ParserGenerator.html"><tt>ParserGenerator</tt></a> to
+   * generate a static method with the specified name building the XML
+   * form specified by this <tt>XmlInfo</tt>, which must be homomorphic
+   * (see <tt>isHomomorphic()</tt>). This compiles what is done by <a
+   * href="#createXmlForm"><tt>createXmlForm</tt></a> for this
+   * <tt>XmlInfo</tt>: the element's name, namespace prefix, attribute
+   * values, and wrapper tags are known at generation time, and so are
+   * the positions of the children whose XML forms are attached; so the
+   * method builds the element with no test on, nor access to, this
+   * <tt>XmlInfo</tt>.
+   */
+  public void generateXmlFormMethod (ParserGenerator g, String name) throws IOException
+  {
+    g.pl("      // "+this);
+    g.pl("      static final org.jdom2.Element "+name
+         +" (ParseNode node, org.jdom2.Element root)");
+    g.pl("        {");
+    g.pl("          org.jdom2.Element element = new org.jdom2.Element(\""+_localName+"\");");
+
+    if (_nsPrefix != "")
+      g.pl("          element.setNamespace(root.getNamespace(\""+_nsPrefix+"\"));");
+
+    if (hasAttributes())
+      for (int i=0; i<_attributes.length; i++)
+        {
+          XmlAttributeInfo a = _attributes[i];
+
+          if (a.hasTerminalValue())
+            { // $VALUE case:
+              g.pl("          element.setAttribute(\""+a.name()
+                   +"\",hlt.language.tools.Misc.unquotify(node.stringValue()));");
+              continue;
+            }
+
+          String value;
+
+          if (a.hasTextForm())
+            { // $TEXT case with only literal arguments:
+              value = "";
+              XmlTextInfoArg[] args = a.specialForm().textArgs();
+              for (int j=0; j<args.length; j++)
+                value += args[j].text();
+            }
+          else
+            // literal attribute value case:
+            value = a.value().text();
+
+          g.pl("          element.setAttribute(\""+a.name()+"\",\""+value+"\");");
+        }
+
+    if (isTerminal() && hasTerminalValue())
+      { // the node's value within its wrappers if any:
+        String content = "node.stringValue()";
+        if (hasWrapperPaths())
+          for (int j=_wrapperPaths[0].length; j-->0;)
+            content = "new org.jdom2.Element(\""+_wrapperPaths[0][j].getTag()
+                    + "\").addContent("+content+")";
+        g.pl("          element.addContent("+content+");");
+      }
+    else
+      if (hasChildren() && !isTerminal())
+        {
+          // compute the XML form of each distinct child within its
+          // wrappers (from the innermost to the outermost):
+          for (int i=0; i<_children.length; i++)
+            {
+              if (firstOccurrence(i) != i)
+                // deja vu!
+                continue;
+
+              String form = "node.child("+_children[i]+").xmlify(root)";
+
+              if (hasWrapperPaths() && _wrapperPaths[i] != null)
+                for (int j=_wrapperPaths[i].length; j-->0;)
+                  form = (_wrapperPaths[i][j].isStarred() ? "XmlInfo.wrapEach(" : "XmlInfo.wrapAll(")
+                       + form+",\""+_wrapperPaths[i][j].getTag()+"\")";
+
+              g.pl("          hlt.language.util.ArrayList form"+_children[i]+" = "+form+";");
+            }
+
+          // attach them in order:
+          for (int i=0; i<_children.length; i++)
+            g.pl("          element.addContent(form"+_children[i]+");");
+        }
+
+    g.pl("          return element;");
+    g.pl("        }");
+  }
+
+  /**
+   * Returns the index in <tt>_children</tt> of the first occurrence of
+   * the child at the specified index.
+   */
+  private final int firstOccurrence (int index)
+    {
+      for (int i=0; i<index; i++)
+        if (_children[i] == _children[index])
+          return i;
+
+      return index;
+    }
   
   /**
    * Uses the specified <a
@@ -724,6 +912,10 @@ public class XmlInfo
       //                         +this);
       // // END DEBUGGING
 
+      // use the compiled code if any:
+      if (_formBuilder != null)
+        return _formBuilder.createXmlForm(_formCode,node,root);
+
       // create a new element with the local name:
       Element element = new Element(_localName);
 
@@ -767,23 +959,9 @@ public class XmlInfo
                 XmlWrapper[] wrapperPath = _wrapperPaths[i];
 
                 for (int j=wrapperPath.length;j-->0;)
-                  if (wrapperPath[j].isStarred())
-                    // we wrap and replace each element in childXmlForm
-                    // for each Element elt in childXmlForm:
-                    for (int x=0; x<childXmlForm.size(); x++)
-                      // replace the element at this index
-                      childXmlForm.set(x,
-                                       // with an element with the new tag wrapping its old self
-                                       (new Element(wrapperPath[j].getTag()))
-                                       .addContent((Element)childXmlForm.get(x)));
-                  else
-                    { // wrapperPath[j] is not starred:
-                      // we wrap childXmlForm in a single Element:
-                      ArrayList wrappedXmlForm = new ArrayList(1);
-                      wrappedXmlForm.add(new Element(wrapperPath[j].getTag())
-                                         .addContent(childXmlForm));
-                      childXmlForm = wrappedXmlForm;
-                    }
+                  childXmlForm = wrapperPath[j].isStarred()
+                               ? wrapEach(childXmlForm,wrapperPath[j].getTag())
+                               : wrapAll(childXmlForm,wrapperPath[j].getTag());
               }
 
             // record the new XML form in xmlForms:
@@ -860,6 +1038,33 @@ public class XmlInfo
       return element;
     }
 
+  /**
+   * Wraps each element of the specified XML form in a new element with
+   * the specified tag (as specified by a starred wrapper), in place, and
+   * returns the form.
+   */
+  public static final ArrayList wrapEach (ArrayList xmlForm, String tag)
+    {
+      for (int x=0; x<xmlForm.size(); x++)
+        // replace the element at this index with an element with the
+        // new tag wrapping its old self:
+        xmlForm.set(x,new Element(tag).addContent((Element)xmlForm.get(x)));
+
+      return xmlForm;
+    }
+
+  /**
+   * Returns a new XML form made of a single element with the specified
+   * tag wrapping all the elements of the specified XML form (as specified
+   * by a non-starred wrapper).
+   */
+  public static final ArrayList wrapAll (ArrayList xmlForm, String tag)
+    {
+      ArrayList wrappedXmlForm = new ArrayList(1);
+      wrappedXmlForm.add(new Element(tag).addContent(xmlForm));
+      return wrappedXmlForm;
+    }
+
   /**
    * <a name="processAttributes"><tt>processAttributes</tt></a>
    * processes the <tt>attributes</tt> annotation directive for the
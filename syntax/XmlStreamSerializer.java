@@ -0,0 +1,547 @@
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+// PLEASE DO NOT EDIT WITHOUT THE EXPLICIT CONSENT OF THE AUTHOR! \\
+//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+package hlt.language.syntax;
+
+import org.jdom2.Attribute;
+import org.jdom2.Comment;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.Text;
+
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import hlt.language.util.ArrayList;
+import hlt.language.tools.Misc;
+
+/**
+ * This is the class of serializers writing the XML form of a parse tree
+ * directly on an <tt>XMLStreamWriter</tt> (or an <tt>OutputStream</tt>)
+ * as the tree is walked, rather than building its JDOM document first
+ * (see <tt>ParseNode.xmlDocument(String,String,String[])</tt>). The XML
+ * form written is that of the document: a root element named <tt>xmlroot</tt>
+ * declaring the specified namespaces and containing the XML form of the
+ * tree as specified by the <a href="XmlInfo.html"><tt>XmlInfo</tt></a>
+ * annotations of its nodes (children, wrapper paths, and attributes), followed
+ * by a time-stamp comment. It is indented as by <tt>GenericParser.writeXml(ParseNode,PrintStream)</tt>
+ * unless indenting is turned off (see <tt>setIndenting(boolean)</tt>).
+ * <p>
+ * An element specified by a homomorphic annotation (see <tt>XmlInfo.isHomomorphic()</tt>)
+ * is written out as soon as its node is reached, and its children's forms
+ * are written out in turn as its contents, so that no XML object is built.
+ * An element specified by a heteromorphic annotation needs the XML forms of
+ * its children before it can be written; so, its JDOM form is built (see
+ * <tt>ParseNode.xmlify(Element)</tt>), written out, and dropped. Thus, only
+ * the JDOM forms of heteromorphic subtrees are ever in memory along with the
+ * parse tree. The JDOM form of a node built upon its reduction (see <tt>GenericParser.setIncrementalXml(boolean)</tt>)
+ * is written out as is. The tree is walked without recursion, so that its
+ * depth does not matter.
+ * <p>
+ * <b>NB:</b> unlike <tt>ParseNode.xmlDocument(String,String,String[])</tt>,
+ * this does not record the XML form and document in the nodes.
+ *
+ * @see         XmlInfo
+ * @see         ParseNode
+ */
+
+public class XmlStreamSerializer
+{
+  private static final String[] NO_WRAPPERS = new String[0];
+
+  /**
+   * The root element's local name and namespace prefix, and the namespace
+   * declarations as an array of alternating prefixes and URIs.
+   */
+  private final String xmlroot;
+  private final String nsprefix;
+  private final String[] namespaces;
+
+  private boolean indenting = true;
+
+  /**
+   * The JDOM root element used as the namespace context for building the
+   * JDOM forms of heteromorphic subtrees; this is created when first needed.
+   */
+  private Element context;
+
+  /**
+   * The writer being written to, the depth of the current element, and,
+   * for each open element, whether it has element contents.
+   */
+  private XMLStreamWriter out;
+  private int depth;
+  private boolean[] hasElements = new boolean[64];
+
+  /**
+   * Constructs a serializer for documents with a root element named as
+   * specified by <tt>xmlroot</tt> and <tt>nsprefix</tt> in the context of
+   * the namespace declarations specified in <tt>namespaces</tt> (see
+   * <tt>ParseNode.xmlDocument(String,String,String[])</tt>).
+   */
+  public XmlStreamSerializer (String xmlroot, String nsprefix, String[] namespaces)
+    {
+      this.xmlroot = xmlroot;
+      this.nsprefix = nsprefix;
+      this.namespaces = namespaces;
+    }
+
+  /**
+   * Sets whether elements are indented on separate lines.
+   */
+  public final void setIndenting (boolean flag)
+    {
+      indenting = flag;
+    }
+
+  /**
+   * Returns <tt>true</tt> iff elements are indented on separate lines.
+   */
+  public final boolean isIndenting ()
+    {
+      return indenting;
+    }
+
+  /**
+   * Writes the XML document of the tree rooted in the specified node on the
+   * specified output stream, encoded as UTF-8. The stream is not closed.
+   */
+  public final void serialize (ParseNode node, OutputStream stream) throws XMLStreamException
+    {
+      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(stream,"UTF-8");
+      writer.writeStartDocument("UTF-8","1.0");
+      serialize(node,writer);
+      writer.writeEndDocument();
+      writer.close();
+    }
+
+  /**
+   * Writes the root element of the XML document of the tree rooted in the
+   * specified node, followed by its time-stamp comment, on the specified
+   * writer. This does not start nor end the document.
+   */
+  public final void serialize (ParseNode node, XMLStreamWriter writer) throws XMLStreamException
+    {
+      out = writer;
+      depth = 0;
+
+      try
+        {
+          writeRoot();
+          writeForm(node);
+          endElements(1);
+          indent();
+          out.writeComment("XML document generated on "+(new Date()));
+          if (indenting)
+            out.writeCharacters("\n");
+          out.flush();
+        }
+      finally
+        {
+          out = null;
+        }
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       WALKING         METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * This is the class of the steps of a walk: writing the XML form of a
+   * node with each of its elements wrapped in the specified tags, writing
+   * a piece of JDOM content (<i>i.e.</i>, an element, a text, or a comment),
+   * opening elements with the specified tags, or closing the specified
+   * number of elements.
+   */
+  private static final class Step
+  {
+    final ParseNode node;
+    final Content content;
+    final String[] tags;
+    final int count;
+
+    Step (ParseNode node, String[] tags, int count)
+      {
+        this.node = node;
+        this.content = null;
+        this.tags = tags;
+        this.count = count;
+      }
+
+    Step (Content content)
+      {
+        this.node = null;
+        this.content = content;
+        this.tags = null;
+        this.count = 0;
+      }
+  }
+
+  /**
+   * Writes the XML form of the tree rooted in the specified node, as would
+   * be computed by <tt>ParseNode.xmlify(Element)</tt>.
+   */
+  private final void writeForm (ParseNode node) throws XMLStreamException
+    {
+      ArrayList steps = new ArrayList();
+      steps.add(new Step(node,NO_WRAPPERS,0));
+
+      while (!steps.isEmpty())
+        {
+          Step step = (Step)steps.remove(steps.size()-1);
+
+          if (step.content != null)
+            {
+              writeContent(step.content,steps);
+              continue;
+            }
+
+          if (step.node == null)
+            {
+              if (step.tags != null)
+                startElements(step.tags);
+              else
+                endElements(step.count);
+              continue;
+            }
+
+          node = step.node;
+          String[] wrappers = step.tags;
+          XmlInfo xmlInfo = node.xmlInfo();
+
+          // the JDOM form of this subtree built upon its reduction is written
+          // as is if it has not been handed over yet; otherwise, it is
+          // obtained anew if the subtree is gone:
+          ArrayList xmlForm = node.reducedXmlForm();
+          if (xmlForm == null
+              && ((node.hasReducedXmlForm() && !node.hasChildren())
+                  || (xmlInfo != null && !xmlInfo.isHomomorphic())))
+            xmlForm = node.xmlify(context());
+
+          if (xmlForm != null)
+            { // write the JDOM form of this subtree, which is dropped
+              // unless it was built upon its reduction;
+              // push the elements' steps in reverse order:
+              for (int i=xmlForm.size(); i-->0;)
+                {
+                  steps.add(new Step(null,null,wrappers.length));
+                  steps.add(new Step((Content)xmlForm.get(i)));
+                  steps.add(new Step(null,wrappers,0));
+                }
+              continue;
+            }
+
+          if (xmlInfo == null) // no annotation - default behavior:
+            {
+              if (node.isTerminal() && node.hasValue())
+                { // a non-annotated value-carrying terminal:
+                  startElements(wrappers);
+                  startElement(null,node.symbol().name(),null);
+                  writeText(node.stringValue());
+                  endElements(1+wrappers.length);
+                }
+              else
+                // a valueless terminal or a non-annotated non-terminal:
+                // its form is the concatenation of its children's forms:
+                for (int i=node.numberOfChildren(); i>0; i--)
+                  steps.add(new Step(node.child(i),wrappers,0));
+              continue;
+            }
+
+          startElements(wrappers);
+          startElement(xmlInfo.nsPrefix(),xmlInfo.localName(),
+                       xmlInfo.hasNsPrefix() ? namespaceURI(xmlInfo.nsPrefix()) : null);
+
+          if (xmlInfo.hasAttributes())
+            writeAttributes(xmlInfo,node);
+
+          if (xmlInfo.isTerminal() && xmlInfo.hasTerminalValue())
+            {
+              writeTerminal(xmlInfo,node);
+              endElements(1+wrappers.length);
+              continue;
+            }
+
+          if (!xmlInfo.hasChildren() || xmlInfo.isTerminal())
+            {
+              endElements(1+wrappers.length);
+              continue;
+            }
+
+          steps.add(new Step(null,null,1+wrappers.length));
+
+          // push the children's steps in reverse order:
+          int[] children = xmlInfo.children();
+          for (int i=children.length; i-->0;)
+            {
+              XmlWrapper[] wrapperPath = xmlInfo.hasWrapperPaths()
+                                       ? xmlInfo.wrapperPaths()[i] : null;
+
+              // the wrappers down to the last non-starred one wrap the
+              // child's whole form, and the starred ones below it wrap
+              // each of its elements:
+              int whole = 0;
+              if (wrapperPath != null)
+                for (int j=0; j<wrapperPath.length; j++)
+                  if (!wrapperPath[j].isStarred())
+                    whole = j+1;
+
+              steps.add(new Step(null,null,whole));
+              steps.add(new Step(node.getChild(children[i]-1),
+                                 tags(wrapperPath,whole,wrapperPath == null ? 0 : wrapperPath.length),0));
+              steps.add(new Step(null,tags(wrapperPath,0,whole),0));
+            }
+        }
+    }
+
+  /**
+   * Returns the tags of the specified wrappers between the specified indices.
+   */
+  private static final String[] tags (XmlWrapper[] wrappers, int from, int to)
+    {
+      if (from == to)
+        return NO_WRAPPERS;
+
+      String[] tags = new String[to-from];
+      for (int i=from; i<to; i++)
+        tags[i-from] = wrappers[i].getTag();
+      return tags;
+    }
+
+  /**
+   * Writes the attributes specified by the specified homomorphic annotation
+   * for the specified node (see <tt>XmlInfo.processAttributes(...)</tt>).
+   */
+  private final void writeAttributes (XmlInfo xmlInfo, ParseNode node) throws XMLStreamException
+    {
+      XmlAttributeInfo[] attributes = xmlInfo.attributes();
+
+      for (int i=0; i<attributes.length; i++)
+        {
+          XmlAttributeInfo a = attributes[i];
+          String value;
+
+          if (a.hasTerminalValue())
+            // $VALUE case:
+            value = Misc.unquotify(node.stringValue());
+          else
+            if (a.hasTextForm())
+              { // $TEXT case with only literal arguments:
+                StringBuilder buf = new StringBuilder();
+                XmlTextInfoArg[] args = a.specialForm().textArgs();
+                for (int j=0; j<args.length; j++)
+                  buf.append(args[j].text());
+                value = buf.toString();
+              }
+            else
+              // literal attribute value case:
+              value = a.value().text();
+
+          out.writeAttribute(a.name(),value);
+        }
+    }
+
+  /**
+   * Writes the value of the specified terminal node as the contents of the
+   * current element, within its wrappers if any (see <tt>XmlInfo.processTerminal(...)</tt>).
+   */
+  private final void writeTerminal (XmlInfo xmlInfo, ParseNode node) throws XMLStreamException
+    {
+      String[] wrappers = xmlInfo.hasWrapperPaths()
+                        ? tags(xmlInfo.wrapperPaths()[0],0,xmlInfo.wrapperPaths()[0].length)
+                        : NO_WRAPPERS;
+
+      startElements(wrappers);
+      writeText(node.stringValue());
+      endElements(wrappers.length);
+    }
+
+  /**
+   * Writes the specified piece of JDOM content. For an element, this writes
+   * its start tag and attributes, and pushes the steps writing its contents
+   * and closing it onto the specified steps of the walk, so that nested
+   * elements are written without recursion as well.
+   */
+  private final void writeContent (Content content, ArrayList steps) throws XMLStreamException
+    {
+      if (content instanceof Text)
+        {
+          writeText(((Text)content).getText());
+          return;
+        }
+
+      if (content instanceof Comment)
+        {
+          indent();
+          out.writeComment(((Comment)content).getText());
+          return;
+        }
+
+      if (!(content instanceof Element))
+        return;
+
+      Element element = (Element)content;
+      String uri = element.getNamespaceURI();
+      startElement(element.getNamespacePrefix(),element.getName(),
+                   uri == null || uri.length() == 0 ? null : uri);
+
+      for (Iterator i=element.getAttributes().iterator(); i.hasNext();)
+        {
+          Attribute attribute = (Attribute)i.next();
+          out.writeAttribute(attribute.getName(),attribute.getValue());
+        }
+
+      steps.add(new Step(null,null,1));
+
+      // push the contents' steps in reverse order:
+      List contents = element.getContent();
+      for (int i=contents.size(); i-->0;)
+        steps.add(new Step((Content)contents.get(i)));
+    }
+
+  /* **************************************************************************** */
+
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+  //                       WRITING         METHODS                      \\
+  //\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\//\\
+
+  /**
+   * Starts the root element and writes its namespace declarations.
+   */
+  private final void writeRoot () throws XMLStreamException
+    {
+      String prefix = null;
+      String uri = null;
+
+      if (namespaces != null)
+        for (int i=0; i<namespaces.length/2; i++)
+          if (namespaces[2*i].equals(nsprefix))
+            {
+              prefix = namespaces[2*i];
+              uri = namespaces[2*i+1];
+            }
+
+      startElement(prefix,xmlroot,uri);
+
+      if (namespaces != null)
+        for (int i=0; i<namespaces.length/2; i++)
+          if (namespaces[2*i].length() == 0)
+            out.writeDefaultNamespace(namespaces[2*i+1]);
+          else
+            out.writeNamespace(namespaces[2*i],namespaces[2*i+1]);
+    }
+
+  /**
+   * Returns the URI of the namespace declared with the specified prefix,
+   * or <tt>null</tt> if there is none.
+   */
+  private final String namespaceURI (String prefix)
+    {
+      if (namespaces != null)
+        for (int i=0; i<namespaces.length/2; i++)
+          if (namespaces[2*i].equals(prefix))
+            return namespaces[2*i+1];
+
+      return null;
+    }
+
+  /**
+   * Returns the JDOM root element declaring the namespaces, as created
+   * by <tt>ParseNode.xmlDocument(String,String,String[])</tt>.
+   */
+  private final Element context ()
+    {
+      if (context == null)
+        {
+          context = new Element(xmlroot);
+          if (namespaces != null)
+            for (int i=0; i<namespaces.length/2; i++)
+              {
+                Namespace ns = Namespace.getNamespace(namespaces[2*i],namespaces[2*i+1]);
+                context.addNamespaceDeclaration(ns);
+                if (namespaces[2*i].equals(nsprefix))
+                  context.setNamespace(ns);
+              }
+        }
+
+      return context;
+    }
+
+  private final void startElement (String prefix, String name, String uri) throws XMLStreamException
+    {
+      indent();
+
+      if (uri == null)
+        out.writeStartElement(name);
+      else
+        out.writeStartElement(prefix == null ? "" : prefix,name,uri);
+
+      if (depth == hasElements.length)
+        {
+          boolean[] newHasElements = new boolean[2*depth];
+          System.arraycopy(hasElements,0,newHasElements,0,depth);
+          hasElements = newHasElements;
+        }
+      hasElements[depth++] = false;
+    }
+
+  private final void startElements (String[] tags) throws XMLStreamException
+    {
+      for (int i=0; i<tags.length; i++)
+        startElement(null,tags[i],null);
+    }
+
+  private final void endElements (int count) throws XMLStreamException
+    {
+      for (int i=0; i<count; i++)
+        {
+          depth--;
+          if (indenting && hasElements[depth])
+            newLine();
+          out.writeEndElement();
+        }
+    }
+
+  /**
+   * Writes the specified text, trimmed if indenting, as the contents of
+   * the current element.
+   */
+  private final void writeText (String text) throws XMLStreamException
+    {
+      if (indenting)
+        text = text.trim();
+
+      if (text.length() != 0)
+        out.writeCharacters(text);
+    }
+
+  /**
+   * Records that the current element has element contents, and starts a
+   * new indented line if indenting.
+   */
+  private final void indent () throws XMLStreamException
+    {
+      if (depth > 0)
+        hasElements[depth-1] = true;
+
+      if (indenting)
+        newLine();
+    }
+
+  private final void newLine () throws XMLStreamException
+    {
+      out.writeCharacters("\n");
+      for (int i=0; i<depth; i++)
+        out.writeCharacters("  ");
+    }
+}